@@ -38,301 +38,4627 @@
  * - HSV colors
  */
 public class Colors {
-    public static final String HEX_COLOR_REGEX = "^#([A-Fa-f0-9]{6})$";
+    /**
+     * Matches every hex color accepted by {@link #hexToPackedRgb(String)}: "#ffcc00", "#fc0", "#ffcc00ff" and "#fc0f",
+     * with or without the leading '#'.
+     */
+    public static final String HEX_COLOR_REGEX = "^#?([A-Fa-f0-9]{3,4}|[A-Fa-f0-9]{6}|[A-Fa-f0-9]{8})$";
+
+    /** Attribute for bold or increased intensity (SGR 1), see {@link #sgr(int, int, int)} */
+    public static final int BOLD = 1;
+    /** Attribute for faint or decreased intensity (SGR 2) */
+    public static final int FAINT = 1 << 1;
+    /** Attribute for italic text (SGR 3) */
+    public static final int ITALIC = 1 << 2;
+    /** Attribute for underlined text (SGR 4) */
+    public static final int UNDERLINE = 1 << 3;
+    /** Attribute for blinking text (SGR 5) */
+    public static final int BLINK = 1 << 4;
+    /** Attribute for swapped foreground and background colors (SGR 7) */
+    public static final int INVERSE = 1 << 5;
+    /** Attribute for hidden text (SGR 8) */
+    public static final int HIDDEN = 1 << 6;
+    /** Attribute for crossed-out text (SGR 9) */
+    public static final int STRIKETHROUGH = 1 << 7;
+    /** All attributes combined */
+    public static final int ALL_ATTRIBUTES = (1 << 8) - 1;
+    /** Color specification for the terminal's default color, see {@link #indexedColor(int)} and {@link #rgbColor(int)} */
+    public static final int DEFAULT_COLOR = 0;
     private static final String ANSI_ESCAPE_SEQUENCE = "\u001B";
     private static final String ANSI_FOREGROUND = "38";
     private static final String ANSI_BACKGROUND = "48";
     private static final String ANSI_COLOR_MODE_8BIT = "5";
     private static final String ANSI_COLOR_MODE_RGB = "2";
-    private static final String MAIN_TEMPLATE = ANSI_ESCAPE_SEQUENCE + "[%s;%s;%sm";
-    private static final String RGB_TEMPLATE = "%s;%s;%s";
-    private static final String EIGHT_BIT_TEMPLATE = "%s";
+    private static final String[] BASIC_FOREGROUND_CODES = {
+            "30", "31", "32", "33", "34", "35", "36", "37", "90", "91", "92", "93", "94", "95", "96", "97"
+    };
+    private static final String[] BASIC_BACKGROUND_CODES = {
+            "40", "41", "42", "43", "44", "45", "46", "47", "100", "101", "102", "103", "104", "105", "106", "107"
+    };
+    private static final String ANSI_SEQUENCE_START = ANSI_ESCAPE_SEQUENCE + "[";
+    private static final char ANSI_SEQUENCE_END = 'm';
+    private static final char ANSI_SEPARATOR = ';';
+    private static final int MAX_SEQUENCE_LENGTH = (ANSI_ESCAPE_SEQUENCE + "[38;2;255;255;255m").length();
+    private static final String[] DECIMALS = decimals();
+    private static final int INDEXED_COLOR = 1 << 24;
+    private static final int RGB_COLOR = 2 << 24;
+    private static final int COLOR_KIND_MASK = 0xFF000000;
+    private static final int COLOR_VALUE_MASK = 0xFFFFFF;
+    private static final char[] ATTRIBUTE_CODES = {'1', '2', '3', '4', '5', '7', '8', '9'};
+    private static final int MAX_SGR_LENGTH = 64;
+    private static final byte[] HEX_DIGITS = hexDigits();
+    private static final ThreadLocal<char[]> SCRATCH = ThreadLocal.withInitial(() -> new char[MAX_SEQUENCE_LENGTH]);
+    private static final int[] XTERM_PALETTE = xtermPalette();
+    private static final boolean DISABLED = Boolean.getBoolean("ansicolors.disabled");
+    private static final ColorDepth DETECTED_COLOR_DEPTH = DISABLED
+            ? ColorDepth.NONE
+            : detectColorDepth(System.getenv(), isTerminal());
+    private static volatile ColorDepth colorDepth = DETECTED_COLOR_DEPTH;
+    private static final ThreadLocal<char[]> SGR_SCRATCH = ThreadLocal.withInitial(() -> new char[MAX_SGR_LENGTH]);
 
     /**
-     * Builds the ANSI escape sequence
+     * Builds the decimal representations of 0 - 255, so encoding a color component is a table lookup.
      *
-     * @param level  Background (48) or foreground (38)
-     * @param colors An array of 1 (Indexed) or 3 (RGB) values
+     * @return Decimal strings indexed by their value
+     */
+    private static String[] decimals() {
+        String[] decimals = new String[256];
+        for (int i = 0; i < decimals.length; i++) {
+            decimals[i] = Integer.toString(i);
+        }
+        return decimals;
+    }
+
+    /**
+     * Builds the ANSI escape sequence for an RGB color
+     *
+     * @param level Background (48) or foreground (38)
+     * @param rgb   Packed color in the form of 0xRRGGBB
      * @return ANSI escape sequence for the given color
      */
-    private static String build(String level, int[] colors) {
-        String colorMode = colors.length > 1 ? ANSI_COLOR_MODE_RGB : ANSI_COLOR_MODE_8BIT;
-        String template = colors.length > 1 ? RGB_TEMPLATE : EIGHT_BIT_TEMPLATE;
+    private static String build(String level, int rgb) {
+        return build(level, rgb, colorDepth);
+    }
 
-        Object[] varargs = new Object[colors.length];
-        for (int i = 0; i < colors.length; i++) {
-            if (colors[i] < 0 || colors[i] > 255) {
-                throw new IllegalArgumentException("Color component or index must be >= 0 and <= 255");
-            }
-            varargs[i] = colors[i];
+    /**
+     * Builds the ANSI escape sequence for an RGB color with the given color depth
+     *
+     * @param level Background (48) or foreground (38)
+     * @param rgb   Packed color in the form of 0xRRGGBB
+     * @param depth Color depth of the sequence
+     * @return ANSI escape sequence for the given color
+     */
+    private static String build(String level, int rgb, ColorDepth depth) {
+        if (depth == ColorDepth.NONE) {
+            return "";
         }
 
-        return String.format(MAIN_TEMPLATE, level, colorMode, String.format(template, varargs));
+        char[] sequence = new char[MAX_SEQUENCE_LENGTH];
+        return new String(sequence, 0, writeRgbSequence(sequence, level, rgb, depth));
     }
 
     /**
-     * Resets colors.
-     *
-     * <pre>{@code
-     *      System.out.print(Colors.reset());
-     * }</pre>
+     * Builds the ANSI escape sequence for an indexed color
      *
-     * @return ANSI color reset sequence
+     * @param level Background (48) or foreground (38)
+     * @param index The index of the color (0 - 255)
+     * @param depth Color depth of the sequence
+     * @return ANSI escape sequence for the given color
      */
-    public static String reset() {
-        return ANSI_ESCAPE_SEQUENCE + "[0m";
+    private static String buildIndexed(String level, int index, ColorDepth depth) {
+        checkComponent(index);
+        if (depth == ColorDepth.NONE) {
+            return "";
+        }
+
+        char[] sequence = new char[MAX_SEQUENCE_LENGTH];
+        int position = write(sequence, 0, ANSI_SEQUENCE_START);
+        position = writeIndexedParameters(sequence, position, level, index, depth);
+        sequence[position++] = ANSI_SEQUENCE_END;
+        return new String(sequence, 0, position);
     }
 
     /**
-     * Returns the ANSI escape sequence to set the foreground to the given color index.
-     *
-     * <pre>{@code
-     *      // Prints "Hello!" in gold
-     *      System.out.print(Colors.fg((short)220)) + "Hello!" + Colors.reset());
-     * }</pre>
+     * Appends the ANSI escape sequence for an RGB color without creating an intermediate String.
      *
-     * @param index The index of the color as short
-     * @return ANSI escape sequence for the given color
-     * @see <a href="https://www.ditig.com/256-colors-cheat-sheet">256 Colors Cheat Sheet</a>
+     * @param out   Destination
+     * @param level Background (48) or foreground (38)
+     * @param rgb   Packed color in the form of 0xRRGGBB
+     * @return the given destination
      */
-    public static String fg(short index) {
-        return build(ANSI_FOREGROUND, new int[]{index});
+    private static <A extends Appendable> A append(A out, String level, int rgb) {
+        ColorDepth depth = colorDepth;
+        if (depth == ColorDepth.NONE) {
+            return out;
+        }
+
+        char[] sequence = SCRATCH.get();
+        return append(out, sequence, writeRgbSequence(sequence, level, rgb, depth));
     }
 
     /**
-     * Returns the ANSI escape sequence to set the foreground to the given red, green and blue components.
+     * Copies characters to an {@link Appendable}, using the bulk methods of the common implementations.
      *
-     * <pre>{@code
-     *      // Prints "Hello!" in gold
-     *      System.out.print(Colors.fg(255, 192, 0)) + "Hello!" + Colors.reset());
-     * }</pre>
+     * @param out    Destination
+     * @param chars  Source
+     * @param length Number of characters to copy
+     * @return the given destination
+     */
+    private static <A extends Appendable> A append(A out, char[] chars, int length) {
+        try {
+            if (out instanceof StringBuilder) {
+                ((StringBuilder) out).append(chars, 0, length);
+            } else if (out instanceof java.io.Writer) {
+                ((java.io.Writer) out).write(chars, 0, length);
+            } else {
+                // A single call instead of one per character, e.g. a PrintStream locks and encodes on every call
+                out.append(new String(chars, 0, length));
+            }
+        } catch (java.io.IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+        return out;
+    }
+
+    /**
+     * Appends a string to an {@link Appendable}.
      *
-     * @param red   red component (0 - 255)
-     * @param green green component (0 - 255)
-     * @param blue  blue component (0 - 255)
-     * @return ANSI escape sequence for the given color
+     * @param out   Destination
+     * @param value Source
+     * @return the given destination
      */
-    public static String fg(int red, int green, int blue) {
-        return build(ANSI_FOREGROUND, new int[]{red, green, blue});
+    private static <A extends Appendable> A append(A out, String value) {
+        try {
+            out.append(value);
+        } catch (java.io.IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+        return out;
     }
 
     /**
-     * Returns the ANSI escape sequence to set the foreground to the given color value.
-     * This is especially useful in combination with other Color sources like java.awt.color
+     * Puts the ANSI escape sequence for an RGB color as ASCII bytes into a buffer.
      *
-     * <pre>{@code
-     *      // Prints "Hello!" in gold
-     *      System.out.print(Colors.fg(16763904L) + "Hello!" + Colors.reset());
-     * }</pre>
+     * @param dst   Destination
+     * @param level Background (48) or foreground (38)
+     * @param rgb   Packed color in the form of 0xRRGGBB
+     * @return Number of bytes written
+     */
+    private static int put(java.nio.ByteBuffer dst, String level, int rgb) {
+        ColorDepth depth = colorDepth;
+        if (depth == ColorDepth.NONE) {
+            return 0;
+        }
+
+        char[] sequence = SCRATCH.get();
+        int length = writeRgbSequence(sequence, level, rgb, depth);
+        if (dst.remaining() < length) {
+            throw new java.nio.BufferOverflowException();
+        }
+        for (int i = 0; i < length; i++) {
+            dst.put((byte) sequence[i]);
+        }
+        return length;
+    }
+
+    /**
+     * Puts an ASCII string as bytes into a buffer.
      *
-     * @param color Color value between 0 and 16777215
-     * @return ANSI escape sequence for the given color
+     * @param dst   Destination
+     * @param value Source, must only contain ASCII characters
+     * @return Number of bytes written
      */
-    public static String fg(int color) {
-        return build(ANSI_FOREGROUND, intToRgb(color));
+    private static int put(java.nio.ByteBuffer dst, String value) {
+        int length = value.length();
+        if (dst.remaining() < length) {
+            throw new java.nio.BufferOverflowException();
+        }
+        for (int i = 0; i < length; i++) {
+            dst.put((byte) value.charAt(i));
+        }
+        return length;
     }
 
     /**
-     * Returns the ANSI escape sequence to set the foreground to the given hex color.
+     * Writes a complete RGB escape sequence like {@code ESC[38;2;255;204;0m} to the start of the buffer.
      *
-     * <pre>{@code
-     *      // Prints "Hello!" in gold
-     *      System.out.print(Colors.fg("#ffcc00") + "Hello!" + Colors.reset());
-     * }</pre>
+     * @param buffer Destination with room for {@link #MAX_SEQUENCE_LENGTH} characters
+     * @param level  Background (48) or foreground (38)
+     * @param rgb    Packed color in the form of 0xRRGGBB
+     * @param depth  Color depth of the sequence
+     * @return Length of the sequence
+     */
+    private static int writeRgbSequence(char[] buffer, String level, int rgb, ColorDepth depth) {
+        int position = write(buffer, 0, ANSI_SEQUENCE_START);
+        position = writeRgbParameters(buffer, position, level, rgb, depth);
+        buffer[position++] = ANSI_SEQUENCE_END;
+        return position;
+    }
+
+    private static void checkComponent(int component) {
+        if (component < 0 || component > 255) {
+            throw new IllegalArgumentException("Color component or index must be >= 0 and <= 255");
+        }
+    }
+
+    private static int checkColor(int color) {
+        if (color < 0 || color > 16777215) {
+            throw new IllegalArgumentException("Color must be >= 0 and <= 16777215");
+        }
+        return color;
+    }
+
+    /**
+     * Writes the parameters of an RGB color like {@code 38;2;255;204;0} without the surrounding escape characters.
+     * With a lower color depth the color is written as the nearest palette color instead.
      *
-     * @param hexColor A hex colorin the form of '#ffcc00'
-     * @return ANSI escape sequence for the given color
+     * @return Position after the last written character
      */
-    public static String fg(String hexColor) {
-        return build(ANSI_FOREGROUND, hexToRgb(hexColor));
+    private static int writeRgbParameters(char[] buffer, int offset, String level, int rgb, ColorDepth depth) {
+        if (depth == ColorDepth.INDEXED_256) {
+            return writeIndexedParameters(buffer, offset, level, nearestIndex256(rgb), depth);
+        }
+        if (depth == ColorDepth.BASIC_16) {
+            return writeBasicParameters(buffer, offset, level, Palette16.NEAREST.nearest(rgb));
+        }
+
+        int position = write(buffer, offset, level);
+        buffer[position++] = ANSI_SEPARATOR;
+        position = write(buffer, position, ANSI_COLOR_MODE_RGB);
+        buffer[position++] = ANSI_SEPARATOR;
+        position = write(buffer, position, DECIMALS[red(rgb)]);
+        buffer[position++] = ANSI_SEPARATOR;
+        position = write(buffer, position, DECIMALS[green(rgb)]);
+        buffer[position++] = ANSI_SEPARATOR;
+        return write(buffer, position, DECIMALS[blue(rgb)]);
     }
 
     /**
-     * Returns the ANSI escape sequence to set the foreground to the given HSV color.
+     * Writes the parameters of an indexed color like {@code 38;5;220} without the surrounding escape characters.
+     * The index is expected to be validated already. With 16 colors the nearest basic color is written instead.
      *
-     * <pre>{@code
-     *      // Prints "Hello!" in gold
-     *      System.out.print(Colors.fg(48.0, 1.0, 1.0) + "Hello!" + Colors.reset());
-     * }</pre>
+     * @return Position after the last written character
+     */
+    private static int writeIndexedParameters(char[] buffer, int offset, String level, int index, ColorDepth depth) {
+        if (depth == ColorDepth.BASIC_16) {
+            int basic = index < 16 ? index : Palette16.NEAREST.nearest(XTERM_PALETTE[index]);
+            return writeBasicParameters(buffer, offset, level, basic);
+        }
+
+        int position = write(buffer, offset, level);
+        buffer[position++] = ANSI_SEPARATOR;
+        position = write(buffer, position, ANSI_COLOR_MODE_8BIT);
+        buffer[position++] = ANSI_SEPARATOR;
+        return write(buffer, position, DECIMALS[index]);
+    }
+
+    /**
+     * Writes the parameter of a basic color like {@code 31} or {@code 101} without the surrounding escape characters.
      *
-     * @param hue        the hue value of the color (in degrees, 0 <= hue <= 360)
-     * @param saturation the saturation value of the color (0.0 <= saturation <= 1.0)
-     * @param value      the value of the color (0.0 <= value <= 1.0)
-     * @return ANSI escape sequence for the given color
+     * @param basic The index of the basic color (0 - 15)
+     * @return Position after the last written character
      */
-    public static String fg(double hue, double saturation, double value) {
-        return build(ANSI_FOREGROUND, hsvToRgb(hue, saturation, value));
+    private static int writeBasicParameters(char[] buffer, int offset, String level, int basic) {
+        String[] codes = ANSI_FOREGROUND.equals(level) ? BASIC_FOREGROUND_CODES : BASIC_BACKGROUND_CODES;
+        return write(buffer, offset, codes[basic]);
     }
 
     /**
-     * Returns the ANSI escape sequence to set the background to the given color index.
+     * Writes the parameters of a color specification without the surrounding escape characters.
      *
-     * <pre>{@code
-     *      // Prints "Hello!" on gold background
-     *      System.out.print(Colors.bg((short)220)) + "Hello!" + Colors.reset());
-     * }</pre>
+     * @param color Indexed or RGB color specification, must not be {@link #DEFAULT_COLOR}
+     * @return Position after the last written character
+     */
+    private static int writeColorParameters(char[] buffer, int offset, String level, int color, ColorDepth depth) {
+        if ((color & COLOR_KIND_MASK) == INDEXED_COLOR) {
+            return writeIndexedParameters(buffer, offset, level, color & COLOR_VALUE_MASK, depth);
+        }
+        return writeRgbParameters(buffer, offset, level, color & COLOR_VALUE_MASK, depth);
+    }
+
+    /**
+     * Writes the shortest SGR sequence that sets all given attributes and colors, like {@code ESC[1;4;38;5;220m}.
+     * Nothing is written if there is nothing to set or colors are turned off.
      *
-     * @param index The index of the color
-     * @return ANSI escape sequence for the given color
-     * @see <a href="https://www.ditig.com/256-colors-cheat-sheet">256 Colors Cheat Sheet</a>
+     * @param buffer     Destination with room for {@link #MAX_SGR_LENGTH} characters
+     * @param attributes Validated attributes
+     * @param foreground Validated foreground color specification
+     * @param background Validated background color specification
+     * @param depth      Color depth of the sequence
+     * @return Length of the sequence
      */
-    public static String bg(short index) {
-        return build(ANSI_BACKGROUND, new int[]{index});
+    private static int writeSgr(char[] buffer, int attributes, int foreground, int background, ColorDepth depth) {
+        if (depth == ColorDepth.NONE
+                || (attributes == 0 && foreground == DEFAULT_COLOR && background == DEFAULT_COLOR)) {
+            return 0;
+        }
+
+        int position = write(buffer, 0, ANSI_SEQUENCE_START);
+        for (int i = 0; i < ATTRIBUTE_CODES.length; i++) {
+            if ((attributes & (1 << i)) != 0) {
+                buffer[position++] = ATTRIBUTE_CODES[i];
+                buffer[position++] = ANSI_SEPARATOR;
+            }
+        }
+        if (foreground != DEFAULT_COLOR) {
+            position = writeColorParameters(buffer, position, ANSI_FOREGROUND, foreground, depth);
+            buffer[position++] = ANSI_SEPARATOR;
+        }
+        if (background != DEFAULT_COLOR) {
+            position = writeColorParameters(buffer, position, ANSI_BACKGROUND, background, depth);
+            buffer[position++] = ANSI_SEPARATOR;
+        }
+        // Replace the trailing separator
+        buffer[position - 1] = ANSI_SEQUENCE_END;
+        return position;
     }
 
     /**
-     * Returns the ANSI escape sequence to set the background to the given red, green and blue components.
+     * Returns the SGR sequence of {@link #writeSgr(char[], int, int, int, ColorDepth)} from a cache with a slot per
+     * color depth, and builds it on first use. Used by the immutable {@link Style} and {@link Color}.
      *
-     * <pre>{@code
-     *      // Prints "Hello!" on gold background
-     *      System.out.print(Colors.bg(255, 192, 0)) + "Hello!" + Colors.reset());
-     * }</pre>
+     * @param sequences  Cached sequences indexed by the ordinal of their color depth
+     * @param attributes Validated attributes
+     * @param foreground Validated foreground color specification
+     * @param background Validated background color specification
+     * @param depth      Color depth of the sequence
+     * @return The sequence, an empty String if there is nothing to set or colors are turned off
+     */
+    private static String cachedSgr(String[] sequences, int attributes, int foreground, int background,
+                                    ColorDepth depth) {
+        // Racy single-check: Strings are immutable, so at worst the sequence is built more than once
+        String result = sequences[depth.ordinal()];
+        if (result == null) {
+            char[] buffer = new char[MAX_SGR_LENGTH];
+            int length = writeSgr(buffer, attributes, foreground, background, depth);
+            result = length == 0 ? "" : new String(buffer, 0, length);
+            sequences[depth.ordinal()] = result;
+        }
+        return result;
+    }
+
+    private static int checkAttributes(int attributes) {
+        if ((attributes & ~ALL_ATTRIBUTES) != 0) {
+            throw new IllegalArgumentException("Attributes must be a combination of BOLD, FAINT, ITALIC, UNDERLINE, "
+                    + "BLINK, INVERSE, HIDDEN and STRIKETHROUGH");
+        }
+        return attributes;
+    }
+
+    private static int checkColorSpecification(int color) {
+        int kind = color & COLOR_KIND_MASK;
+        if (color != DEFAULT_COLOR && kind != RGB_COLOR && (kind != INDEXED_COLOR || (color & COLOR_VALUE_MASK) > 255)) {
+            throw new IllegalArgumentException("Color must be DEFAULT_COLOR or created by indexedColor or rgbColor");
+        }
+        return color;
+    }
+
+    private static int write(char[] buffer, int offset, String value) {
+        value.getChars(0, value.length(), buffer, offset);
+        return offset + value.length();
+    }
+
+    /**
+     * Looks up the precomputed escape sequence for a color index.
      *
-     * @param red   red component (0 - 255)
-     * @param green green component (0 - 255)
-     * @param blue  blue component (0 - 255)
+     * @param tables Foreground or background tables from {@link IndexedSequences}
+     * @param level  Background (48) or foreground (38)
+     * @param index  The index of the color
      * @return ANSI escape sequence for the given color
      */
-    public static String bg(int red, int green, int blue) {
-        return build(ANSI_BACKGROUND, new int[]{red, green, blue});
+    private static String indexed(java.util.concurrent.atomic.AtomicReferenceArray<String[]> tables, String level,
+                                  short index) {
+        checkComponent(index);
+        ColorDepth depth = colorDepth;
+        String[] table = tables.get(depth.ordinal());
+        if (table == null) {
+            // Two threads may both build the table, they end up with equal sequences
+            table = IndexedSequences.table(level, depth);
+            tables.set(depth.ordinal(), table);
+        }
+        return table[index];
     }
 
     /**
-     * Returns the ANSI escape sequence to set the background to the given color value.
-     * This is especially useful in combination with other Color sources like java.awt.color
+     * Holds the escape sequences of all 256 indexed colors per color depth.
+     * The table of a depth is built when it is first used, so e.g. truecolor never builds the 16 color lookup table
+     * that the basic colors need. The tables are published through an atomic array, so no thread sees a table that
+     * is not completely filled yet.
+     */
+    private static final class IndexedSequences {
+        static final java.util.concurrent.atomic.AtomicReferenceArray<String[]> FOREGROUND =
+                new java.util.concurrent.atomic.AtomicReferenceArray<>(ColorDepth.values().length);
+        static final java.util.concurrent.atomic.AtomicReferenceArray<String[]> BACKGROUND =
+                new java.util.concurrent.atomic.AtomicReferenceArray<>(ColorDepth.values().length);
+
+        private IndexedSequences() {
+        }
+
+        static String[] table(String level, ColorDepth depth) {
+            String[] table = new String[256];
+            for (int i = 0; i < table.length; i++) {
+                table[i] = buildIndexed(level, i, depth);
+            }
+            return table;
+        }
+    }
+
+    /**
+     * Creates the color specification for an indexed color, to be used with {@link #sgr(int, int, int)}.
+     * Together with {@link #rgbColor(int)} and {@link #DEFAULT_COLOR} this allows keeping styles as plain ints.
      *
-     * <pre>{@code
-     *      // Prints "Hello!" on gold background
-     *      System.out.print(Colors.bg(16763904L) + "Hello!" + Colors.reset());
-     * }</pre>
+     * @param index The index of the color (0 - 255)
+     * @return Color specification for the given index
+     */
+    public static int indexedColor(int index) {
+        checkComponent(index);
+        return INDEXED_COLOR | index;
+    }
+
+    /**
+     * Creates the color specification for an RGB color, to be used with {@link #sgr(int, int, int)}.
      *
-     * @param color Color value between 0 and 16777215
-     * @return ANSI escape sequence for the given color
+     * @param color Color value between 0 and 16777215, see {@link #pack(int, int, int)}
+     * @return Color specification for the given color
      */
-    public static String bg(int color) {
-        return build(ANSI_BACKGROUND, intToRgb(color));
+    public static int rgbColor(int color) {
+        return RGB_COLOR | checkColor(color);
     }
 
     /**
-     * Returns the ANSI escape sequence to set the background to the given hex color.
+     * Returns the shortest SGR sequence that sets the given attributes and colors at once.
      *
      * <pre>{@code
-     *      // Prints "Hello!" on gold background
-     *      System.out.print(Colors.bg("#ffcc00") + "Hello!" + Colors.reset());
+     *      // Prints "Hello!" bold and underlined in gold
+     *      String sequence = Colors.sgr(Colors.BOLD | Colors.UNDERLINE, Colors.rgbColor(0xffcc00), Colors.DEFAULT_COLOR);
+     *      System.out.print(sequence + "Hello!" + Colors.reset());
      * }</pre>
+     * <p>
+     * Attributes and colors that are not set are left as they are, use {@link #reset()}, {@link #resetFg()} or
+     * {@link #resetBg()} to clear them.
      *
-     * @param hexColor A hex colorin the form of '#ffcc00'
-     * @return ANSI escape sequence for the given color
+     * @param attributes A combination of {@link #BOLD}, {@link #ITALIC}, {@link #UNDERLINE} etc. or 0
+     * @param foreground A color specification or {@link #DEFAULT_COLOR} to leave the foreground untouched
+     * @param background A color specification or {@link #DEFAULT_COLOR} to leave the background untouched
+     * @return ANSI escape sequence, an empty String if there is nothing to set or colors are turned off
      */
-    public static String bg(String hexColor) {
-        return build(ANSI_BACKGROUND, hexToRgb(hexColor));
+    public static String sgr(int attributes, int foreground, int background) {
+        if (DISABLED) {
+            return "";
+        }
+
+        char[] buffer = new char[MAX_SGR_LENGTH];
+        int length = writeSgr(buffer, checkAttributes(attributes), checkColorSpecification(foreground),
+                checkColorSpecification(background), colorDepth);
+        return length == 0 ? "" : new String(buffer, 0, length);
     }
 
     /**
-     * Returns the ANSI escape sequence to set the background to the given HSV color.
+     * Appends the shortest SGR sequence that sets the given attributes and colors at once.
+     * Behaves like {@link #sgr(int, int, int)}, but writes to the destination instead of creating a String.
      *
-     * <pre>{@code
-     *      // Prints "Hello!" on gold background
-     *      System.out.print(Colors.bg(48.0, 1.0, 1.0) + "Hello!" + Colors.reset());
-     * }</pre>
+     * @param out        A destination like a {@link StringBuilder} or {@link java.io.Writer}
+     * @param attributes A combination of {@link #BOLD}, {@link #ITALIC}, {@link #UNDERLINE} etc. or 0
+     * @param foreground A color specification or {@link #DEFAULT_COLOR} to leave the foreground untouched
+     * @param background A color specification or {@link #DEFAULT_COLOR} to leave the background untouched
+     * @return the given destination
+     * @throws java.io.UncheckedIOException if the destination fails to append
+     */
+    public static <A extends Appendable> A appendSgr(A out, int attributes, int foreground, int background) {
+        if (DISABLED) {
+            return out;
+        }
+
+        char[] buffer = SGR_SCRATCH.get();
+        int length = writeSgr(buffer, checkAttributes(attributes), checkColorSpecification(foreground),
+                checkColorSpecification(background), colorDepth);
+        return append(out, buffer, length);
+    }
+
+    /**
+     * Resets the foreground to the terminal's default color, leaving background and attributes untouched.
      *
-     * @param hue        the hue value of the color (in degrees, 0 <= hue <= 360)
-     * @param saturation the saturation value of the color (0.0 <= saturation <= 1.0)
-     * @param value      the value of the color (0.0 <= value <= 1.0)
-     * @return ANSI escape sequence for the given color
+     * @return ANSI foreground reset sequence, an empty String if colors are turned off
      */
-    public static String bg(double hue, double saturation, double value) {
-        return build(ANSI_BACKGROUND, hsvToRgb(hue, saturation, value));
+    public static String resetFg() {
+        if (DISABLED || colorDepth == ColorDepth.NONE) {
+            return "";
+        }
+        return ANSI_ESCAPE_SEQUENCE + "[39m";
     }
 
     /**
-     * Converts an integer value color to RGB (red, green, blue) components.
+     * Resets the background to the terminal's default color, leaving foreground and attributes untouched.
      *
-     * @param color A color value between 0 and 16777215
-     * @return an integer array containing the RGB values of the color (in range 0-255)
+     * @return ANSI background reset sequence, an empty String if colors are turned off
      */
-    public static int[] intToRgb(int color) {
-        if (color < 0 || color > 16777215) {
-            throw new IllegalArgumentException("Color must be >= 0 and <= 16777215");
+    public static String resetBg() {
+        if (DISABLED || colorDepth == ColorDepth.NONE) {
+            return "";
         }
+        return ANSI_ESCAPE_SEQUENCE + "[49m";
+    }
 
-        int red = (int) ((color >> 16) & 0xFF);
-        int green = (int) ((color >> 8) & 0xFF);
-        int blue = (int) (color & 0xFF);
-        return new int[]{red, green, blue};
+    /**
+     * Creates a style from primitives, see {@link Style}.
+     *
+     * @param attributes A combination of {@link #BOLD}, {@link #ITALIC}, {@link #UNDERLINE} etc. or 0
+     * @param foreground A color specification or {@link #DEFAULT_COLOR}
+     * @param background A color specification or {@link #DEFAULT_COLOR}
+     * @return The style
+     */
+    public static Style style(int attributes, int foreground, int background) {
+        return new Style(checkAttributes(attributes), checkColorSpecification(foreground),
+                checkColorSpecification(background));
     }
 
     /**
-     * Converts a given hex color to RGB (red, green, blue) components.
+     * Returns the color depth used for all colors.
      *
-     * @param hexColor A hex color in the form of "#ffcc00"
-     * @return an integer array containing the RGB values of the color (in range 0-255)
+     * @return The current color depth, {@link #detectedColorDepth()} unless changed
      */
-    public static int[] hexToRgb(String hexColor) {
-        if (!hexColor.matches(HEX_COLOR_REGEX)) {
-            throw new IllegalArgumentException("Color must be in the format '#ffcc00'");
-        }
+    public static ColorDepth colorDepth() {
+        return colorDepth;
+    }
 
-        int red = Integer.parseInt(hexColor.substring(1, 3), 16);
-        int green = Integer.parseInt(hexColor.substring(3, 5), 16);
-        int blue = Integer.parseInt(hexColor.substring(5, 7), 16);
-        return new int[]{red, green, blue};
+    /**
+     * Returns the color depth of the terminal as detected once when this class was loaded.
+     * <p>
+     * The environment is checked in the following order:
+     * <ol>
+     * <li>The system property {@code -Dansicolors.disabled=true} turns colors off for good, see
+     * {@link #setColorDepth(ColorDepth)}</li>
+     * <li>{@code NO_COLOR} with any non-empty value turns colors off, see <a href="https://no-color.org">no-color.org</a></li>
+     * <li>{@code FORCE_COLOR} forces colors even without a console: {@code 0} or {@code false} turns them off,
+     * {@code 1}, {@code true} or an empty value means at least 16 colors, {@code 2} at least 256 colors and
+     * {@code 3} truecolor</li>
+     * <li>Unless standard output is a terminal, e.g. when it is redirected to a file or pipe, colors are off. Before
+     * JDK 22, this also requires standard input to be a terminal, so {@code cmd < input.txt} turns colors off as
+     * well. Standard error is not checked, use {@link #setColorDepth(ColorDepth)} when writing colors only there.</li>
+     * <li>{@code TERM=dumb} turns colors off</li>
+     * <li>{@code COLORTERM=truecolor} or {@code COLORTERM=24bit} means truecolor</li>
+     * <li>A {@code TERM} ending with {@code -direct} means truecolor, one containing {@code 256color} 256 colors</li>
+     * <li>Any other terminal gets the 16 basic colors</li>
+     * </ol>
+     *
+     * @return The color depth the terminal supports
+     */
+    public static ColorDepth detectedColorDepth() {
+        return DETECTED_COLOR_DEPTH;
     }
 
     /**
-     * Converts a given HSV (hue, saturation, value) color to RGB (red, green, blue) color space.
+     * Checks whether standard output is a terminal.
      * <p>
-     * https://www.cs.rit.edu/~ncs/color/t_convert.html
+     * Since JDK 22, {@code System.console()} returns a console even if the output is redirected, and
+     * {@code Console.isTerminal()} tells whether it is a terminal. The method is called by reflection, as older JDKs
+     * do not have it. They only return a console if both standard input and standard output are terminals.
      *
-     * @param hue        the hue value of the color (in degrees, 0 <= hue <= 360)
-     * @param saturation the saturation value of the color (0.0 <= saturation <= 1.0)
-     * @param value      the value of the color (0.0 <= value <= 1.0)
-     * @return an integer array containing the RGB values of the color (in range 0-255)
+     * @return Whether standard output is a terminal
      */
-    private static int[] hsvToRgb(double hue, double saturation, double value) {
-        if (hue < 0 || hue > 360) {
-            throw new IllegalArgumentException("Hue must be >= 0.0 and <= 360.0.");
+    private static boolean isTerminal() {
+        java.io.Console console = System.console();
+        if (console == null) {
+            return false;
         }
-        if (saturation < 0 || saturation > 1) {
-            throw new IllegalArgumentException("Saturation must be >= 0.0 and <= 1.0.");
+        try {
+            return (Boolean) java.io.Console.class.getMethod("isTerminal").invoke(console);
+        } catch (ReflectiveOperationException e) {
+            // Before JDK 22, the console itself means that standard input and output are terminals
+            return true;
         }
-        if (value < 0 || value > 1) {
-            throw new IllegalArgumentException("Value must be >= 0.0 and <= 1.0.");
+    }
+
+    /**
+     * Detects the color depth from environment variables, see {@link #detectedColorDepth()}.
+     *
+     * @param env     The environment variables
+     * @param console Whether standard output is a terminal
+     * @return The color depth the terminal supports
+     */
+    static ColorDepth detectColorDepth(java.util.Map<String, String> env, boolean console) {
+        String noColor = env.get("NO_COLOR");
+        if (noColor != null && !noColor.isEmpty()) {
+            return ColorDepth.NONE;
         }
 
-        double sectorDouble = (hue / 60.0) % 6;
-        int sector = (int) sectorDouble;
-        double f = sectorDouble - sector;
-        double p = value * (1 - saturation);
-        double q = value * (1 - f * saturation);
-        double t = value * (1 - (1 - f) * saturation);
-        double[] rgb;
-        switch (sector) {
-            case 0:
-                rgb = new double[]{value, t, p};
-                break;
-            case 1:
-                rgb = new double[]{q, value, p};
-                break;
-            case 2:
-                rgb = new double[]{p, value, t};
-                break;
-            case 3:
-                rgb = new double[]{p, q, value};
-                break;
-            case 4:
-                rgb = new double[]{t, p, value};
-                break;
+        ColorDepth forced = null;
+        String forceColor = env.get("FORCE_COLOR");
+        if (forceColor != null) {
+            switch (forceColor) {
+                case "0":
+                case "false":
+                    return ColorDepth.NONE;
+                case "2":
+                    forced = ColorDepth.INDEXED_256;
+                    break;
+                case "3":
+                    forced = ColorDepth.TRUECOLOR;
+                    break;
+                default:
+                    forced = ColorDepth.BASIC_16;
+                    break;
+            }
+        }
+        if (forced == null && !console) {
+            return ColorDepth.NONE;
+        }
+
+        String term = env.get("TERM");
+        String colorTerm = env.get("COLORTERM");
+        ColorDepth detected;
+        if ("dumb".equals(term)) {
+            detected = ColorDepth.NONE;
+        } else if ("truecolor".equals(colorTerm) || "24bit".equals(colorTerm)
+                || (term != null && term.endsWith("-direct"))) {
+            detected = ColorDepth.TRUECOLOR;
+        } else if (term != null && term.contains("256color")) {
+            detected = ColorDepth.INDEXED_256;
+        } else {
+            detected = ColorDepth.BASIC_16;
+        }
+        return forced != null && forced.compareTo(detected) > 0 ? forced : detected;
+    }
+
+    /**
+     * Sets the color depth used by all methods from now on, overriding {@link #detectedColorDepth()}.
+     * With {@link ColorDepth#BASIC_16} this also applies to indexed colors, {@link ColorDepth#NONE} turns all
+     * escape sequences off.
+     * <p>
+     * When the JVM was started with {@code -Dansicolors.disabled=true}, colors stay off and this method has no
+     * effect. As that switch is a constant, the JIT reduces every method to returning an empty String without even
+     * validating its parameters, so there is no cost left in services that never write to a terminal.
+     *
+     * <pre>{@code
+     *      Colors.setColorDepth(Colors.ColorDepth.INDEXED_256);
+     *      // Prints ESC[38;5;220m instead of ESC[38;2;255;204;0m
+     *      System.out.print(Colors.fg("#ffcc00") + "Hello!" + Colors.reset());
+     * }</pre>
+     *
+     * @param depth The color depth supported by the terminal
+     */
+    public static void setColorDepth(ColorDepth depth) {
+        if (depth == null) {
+            throw new IllegalArgumentException("Color depth must not be null");
+        }
+        if (!DISABLED) {
+            colorDepth = depth;
+        }
+    }
+
+    /**
+     * Finds the entry of the 256 color palette that is nearest to the given color.
+     * <p>
+     * Only the color cube and the greys (16 - 255) are considered, as terminals commonly change the 16 system
+     * colors. The result is the same as comparing the Euclidean RGB distance to every entry, but it is computed
+     * directly from the nearest level of the color cube and the nearest grey.
+     *
+     * @param red   red component (0 - 255)
+     * @param green green component (0 - 255)
+     * @param blue  blue component (0 - 255)
+     * @return The palette index (16 - 255)
+     * @see <a href="https://www.ditig.com/256-colors-cheat-sheet">256 Colors Cheat Sheet</a>
+     */
+    public static int toIndex256(int red, int green, int blue) {
+        return nearestIndex256(pack(red, green, blue));
+    }
+
+    /**
+     * Finds the entry of the 256 color palette that looks most similar to the given color.
+     * <p>
+     * Unlike {@link #toIndex256(int, int, int)}, colors are compared by their distance in the perceptually uniform
+     * OKLab color space, which gives noticeably better greys and skin tones. The palette entries are kept in a
+     * k-d tree that is built on first use. Every result is remembered in a table with an entry per RGB color, so
+     * colors that were seen before, as they are in images, cost a single array access. The table takes 16 MB and is
+     * only allocated when this method is used.
+     *
+     * @param red   red component (0 - 255)
+     * @param green green component (0 - 255)
+     * @param blue  blue component (0 - 255)
+     * @return The palette index (16 - 255)
+     * @see <a href="https://bottosson.github.io/posts/oklab/">A perceptual color space for image processing</a>
+     */
+    public static int toIndex256Perceptual(int red, int green, int blue) {
+        int rgb = pack(red, green, blue);
+        // 0 is not a candidate, so it marks colors that were not looked up yet
+        int index = PerceptualPalette256.CACHE[rgb] & 0xFF;
+        if (index == 0) {
+            index = PerceptualPalette256.TREE.nearest(red, green, blue);
+            // Racy, but a byte is written atomically and every thread computes the same value
+            PerceptualPalette256.CACHE[rgb] = (byte) index;
+        }
+        return index;
+    }
+
+    /**
+     * Finds the basic color (0 - 15) that is nearest to the given color, using the default xterm colors.
+     * The result is the same as comparing the Euclidean RGB distance to every basic color, but it is looked up
+     * from a table that is built on first use.
+     *
+     * @param red   red component (0 - 255)
+     * @param green green component (0 - 255)
+     * @param blue  blue component (0 - 255)
+     * @return The index of the basic color (0 - 7 normal, 8 - 15 bright)
+     */
+    public static int toIndex16(int red, int green, int blue) {
+        return Palette16.NEAREST.nearest(pack(red, green, blue));
+    }
+
+    /**
+     * Returns the color of an entry of the default xterm 256 color palette.
+     *
+     * @param index The index of the color (0 - 255)
+     * @return Color value in the form of 0xRRGGBB
+     */
+    public static int indexToPackedRgb(int index) {
+        checkComponent(index);
+        return XTERM_PALETTE[index];
+    }
+
+    /**
+     * Starts a style without any colors or attributes, see {@link Style}.
+     *
+     * <pre>{@code
+     *      Colors.Style warning = Colors.style().fg("#ffcc00").bg((short) 236).bold();
+     *      System.out.print(warning + "Hello!" + Colors.reset());
+     * }</pre>
+     *
+     * @return The empty style
+     */
+    public static Style style() {
+        return Style.PLAIN;
+    }
+
+    /**
+     * Returns the color for an index of the 256 color palette, see {@link Color}.
+     *
+     * <pre>{@code
+     *      Colors.Color gold = Colors.color((short) 220);
+     *      System.out.print(gold.fg() + "Hello!" + Colors.reset());
+     * }</pre>
+     *
+     * @param index The index of the color as short
+     * @return The same instance for every call with this index
+     */
+    public static Color color(short index) {
+        checkComponent(index);
+        return Color.INDEXED[index];
+    }
+
+    /**
+     * Creates a color from RGB components, see {@link Color}.
+     *
+     * @param red   red component (0 - 255)
+     * @param green green component (0 - 255)
+     * @param blue  blue component (0 - 255)
+     * @return The color
+     */
+    public static Color color(int red, int green, int blue) {
+        return new Color(RGB_COLOR | pack(red, green, blue));
+    }
+
+    /**
+     * Creates a color from a color value, see {@link Color}.
+     *
+     * @param color Color value between 0 and 16777215
+     * @return The color
+     */
+    public static Color color(int color) {
+        return new Color(RGB_COLOR | checkColor(color));
+    }
+
+    /**
+     * Creates a color from a hex color, see {@link Color}.
+     *
+     * @param hexColor A hex color in the form of '#ffcc00'
+     * @return The color
+     */
+    public static Color color(String hexColor) {
+        return new Color(RGB_COLOR | hexToPackedRgb(hexColor));
+    }
+
+    /**
+     * Creates a color from HSV values, see {@link Color}.
+     *
+     * @param hue        the hue value of the color (in degrees, 0 <= hue <= 360)
+     * @param saturation the saturation value of the color (0.0 <= saturation <= 1.0)
+     * @param value      the value of the color (0.0 <= value <= 1.0)
+     * @return The color
+     */
+    public static Color color(double hue, double saturation, double value) {
+        return new Color(RGB_COLOR | hsvToPackedRgb(hue, saturation, value));
+    }
+
+    /**
+     * Looks up one of the 148 named colors of CSS, which are the X11 colors with a few changes, see {@link Color}.
+     *
+     * <pre>{@code
+     *      Colors.Color accent = Colors.namedColor(config.getProperty("accent", "orange"));
+     * }</pre>
+     * <p>
+     * Names are matched ignoring case through a perfect hash table, which needs neither a regular expression nor a
+     * lower case copy of the name. Every name returns the same instance on every call.
+     *
+     * @param name A color name like 'orange' or 'slategray'
+     * @return The color
+     * @see <a href="https://www.w3.org/TR/css-color-4/#named-colors">CSS Color Module Level 4, Named Colors</a>
+     */
+    public static Color namedColor(String name) {
+        return NamedColors.get(name);
+    }
+
+    /**
+     * Returns the ANSI escape sequence to set the foreground to a named color.
+     *
+     * <pre>{@code
+     *      // Prints "Hello!" in orange
+     *      System.out.print(Colors.fgNamed("orange") + "Hello!" + Colors.reset());
+     * }</pre>
+     *
+     * @param name A color name like 'orange' or 'slategray'
+     * @return ANSI escape sequence for the given color
+     * @see #namedColor(String)
+     */
+    public static String fgNamed(String name) {
+        if (DISABLED) {
+            return "";
+        }
+
+        return NamedColors.get(name).fg();
+    }
+
+    /**
+     * Returns the ANSI escape sequence to set the background to a named color.
+     *
+     * @param name A color name like 'orange' or 'slategray'
+     * @return ANSI escape sequence for the given color
+     * @see #namedColor(String)
+     */
+    public static String bgNamed(String name) {
+        if (DISABLED) {
+            return "";
+        }
+
+        return NamedColors.get(name).bg();
+    }
+
+    /**
+     * Resets colors.
+     *
+     * <pre>{@code
+     *      System.out.print(Colors.reset());
+     * }</pre>
+     *
+     * @return ANSI color reset sequence, an empty String if colors are turned off
+     */
+    public static String reset() {
+        if (DISABLED || colorDepth == ColorDepth.NONE) {
+            return "";
+        }
+        return ANSI_ESCAPE_SEQUENCE + "[0m";
+    }
+
+    /**
+     * Returns the ANSI escape sequence to set the foreground to the given color index.
+     *
+     * <pre>{@code
+     *      // Prints "Hello!" in gold
+     *      System.out.print(Colors.fg((short)220)) + "Hello!" + Colors.reset());
+     * }</pre>
+     *
+     * @param index The index of the color as short
+     * @return ANSI escape sequence for the given color
+     * @see <a href="https://www.ditig.com/256-colors-cheat-sheet">256 Colors Cheat Sheet</a>
+     */
+    public static String fg(short index) {
+        if (DISABLED) {
+            return "";
+        }
+
+        return indexed(IndexedSequences.FOREGROUND, ANSI_FOREGROUND, index);
+    }
+
+    /**
+     * Returns the ANSI escape sequence to set the foreground to the given red, green and blue components.
+     *
+     * <pre>{@code
+     *      // Prints "Hello!" in gold
+     *      System.out.print(Colors.fg(255, 192, 0)) + "Hello!" + Colors.reset());
+     * }</pre>
+     *
+     * @param red   red component (0 - 255)
+     * @param green green component (0 - 255)
+     * @param blue  blue component (0 - 255)
+     * @return ANSI escape sequence for the given color
+     */
+    public static String fg(int red, int green, int blue) {
+        if (DISABLED) {
+            return "";
+        }
+
+        return build(ANSI_FOREGROUND, pack(red, green, blue));
+    }
+
+    /**
+     * Returns the ANSI escape sequence to set the foreground to the given color value.
+     * This is especially useful in combination with other Color sources like java.awt.color
+     *
+     * <pre>{@code
+     *      // Prints "Hello!" in gold
+     *      System.out.print(Colors.fg(16763904L) + "Hello!" + Colors.reset());
+     * }</pre>
+     *
+     * @param color Color value between 0 and 16777215
+     * @return ANSI escape sequence for the given color
+     */
+    public static String fg(int color) {
+        if (DISABLED) {
+            return "";
+        }
+
+        return build(ANSI_FOREGROUND, checkColor(color));
+    }
+
+    /**
+     * Returns the ANSI escape sequence to set the foreground to the given hex color.
+     *
+     * <pre>{@code
+     *      // Prints "Hello!" in gold
+     *      System.out.print(Colors.fg("#ffcc00") + "Hello!" + Colors.reset());
+     * }</pre>
+     *
+     * @param hexColor A hex color in the form of '#ffcc00'
+     * @return ANSI escape sequence for the given color
+     */
+    public static String fg(String hexColor) {
+        if (DISABLED) {
+            return "";
+        }
+
+        return build(ANSI_FOREGROUND, hexToPackedRgb(hexColor));
+    }
+
+    /**
+     * Returns the ANSI escape sequence to set the foreground to the given HSV color.
+     *
+     * <pre>{@code
+     *      // Prints "Hello!" in gold
+     *      System.out.print(Colors.fg(48.0, 1.0, 1.0) + "Hello!" + Colors.reset());
+     * }</pre>
+     *
+     * @param hue        the hue value of the color (in degrees, 0 <= hue <= 360)
+     * @param saturation the saturation value of the color (0.0 <= saturation <= 1.0)
+     * @param value      the value of the color (0.0 <= value <= 1.0)
+     * @return ANSI escape sequence for the given color
+     */
+    public static String fg(double hue, double saturation, double value) {
+        if (DISABLED) {
+            return "";
+        }
+
+        return build(ANSI_FOREGROUND, hsvToPackedRgb(hue, saturation, value));
+    }
+
+    /**
+     * Returns the ANSI escape sequence to set the background to the given color index.
+     *
+     * <pre>{@code
+     *      // Prints "Hello!" on gold background
+     *      System.out.print(Colors.bg((short)220)) + "Hello!" + Colors.reset());
+     * }</pre>
+     *
+     * @param index The index of the color
+     * @return ANSI escape sequence for the given color
+     * @see <a href="https://www.ditig.com/256-colors-cheat-sheet">256 Colors Cheat Sheet</a>
+     */
+    public static String bg(short index) {
+        if (DISABLED) {
+            return "";
+        }
+
+        return indexed(IndexedSequences.BACKGROUND, ANSI_BACKGROUND, index);
+    }
+
+    /**
+     * Returns the ANSI escape sequence to set the background to the given red, green and blue components.
+     *
+     * <pre>{@code
+     *      // Prints "Hello!" on gold background
+     *      System.out.print(Colors.bg(255, 192, 0)) + "Hello!" + Colors.reset());
+     * }</pre>
+     *
+     * @param red   red component (0 - 255)
+     * @param green green component (0 - 255)
+     * @param blue  blue component (0 - 255)
+     * @return ANSI escape sequence for the given color
+     */
+    public static String bg(int red, int green, int blue) {
+        if (DISABLED) {
+            return "";
+        }
+
+        return build(ANSI_BACKGROUND, pack(red, green, blue));
+    }
+
+    /**
+     * Returns the ANSI escape sequence to set the background to the given color value.
+     * This is especially useful in combination with other Color sources like java.awt.color
+     *
+     * <pre>{@code
+     *      // Prints "Hello!" on gold background
+     *      System.out.print(Colors.bg(16763904L) + "Hello!" + Colors.reset());
+     * }</pre>
+     *
+     * @param color Color value between 0 and 16777215
+     * @return ANSI escape sequence for the given color
+     */
+    public static String bg(int color) {
+        if (DISABLED) {
+            return "";
+        }
+
+        return build(ANSI_BACKGROUND, checkColor(color));
+    }
+
+    /**
+     * Returns the ANSI escape sequence to set the background to the given hex color.
+     *
+     * <pre>{@code
+     *      // Prints "Hello!" on gold background
+     *      System.out.print(Colors.bg("#ffcc00") + "Hello!" + Colors.reset());
+     * }</pre>
+     *
+     * @param hexColor A hex color in the form of '#ffcc00'
+     * @return ANSI escape sequence for the given color
+     */
+    public static String bg(String hexColor) {
+        if (DISABLED) {
+            return "";
+        }
+
+        return build(ANSI_BACKGROUND, hexToPackedRgb(hexColor));
+    }
+
+    /**
+     * Returns the ANSI escape sequence to set the background to the given HSV color.
+     *
+     * <pre>{@code
+     *      // Prints "Hello!" on gold background
+     *      System.out.print(Colors.bg(48.0, 1.0, 1.0) + "Hello!" + Colors.reset());
+     * }</pre>
+     *
+     * @param hue        the hue value of the color (in degrees, 0 <= hue <= 360)
+     * @param saturation the saturation value of the color (0.0 <= saturation <= 1.0)
+     * @param value      the value of the color (0.0 <= value <= 1.0)
+     * @return ANSI escape sequence for the given color
+     */
+    public static String bg(double hue, double saturation, double value) {
+        if (DISABLED) {
+            return "";
+        }
+
+        return build(ANSI_BACKGROUND, hsvToPackedRgb(hue, saturation, value));
+    }
+
+    /**
+     * Appends the ANSI color reset sequence to the given destination.
+     *
+     * <pre>{@code
+     *      StringBuilder line = new StringBuilder();
+     *      Colors.appendReset(Colors.appendFg(line, 255, 192, 0).append("Hello!"));
+     * }</pre>
+     *
+     * @param out A destination like a {@link StringBuilder} or {@link java.io.Writer}
+     * @return the given destination
+     * @throws java.io.UncheckedIOException if the destination fails to append
+     */
+    public static <A extends Appendable> A appendReset(A out) {
+        if (DISABLED) {
+            return out;
+        }
+
+        return append(out, reset());
+    }
+
+    /**
+     * Appends the ANSI escape sequence to set the foreground to the given color index.
+     * Behaves like {@link #fg(short)}, but writes to the destination instead of creating a String.
+     *
+     * @param out   A destination like a {@link StringBuilder} or {@link java.io.Writer}
+     * @param index The index of the color as short
+     * @return the given destination
+     * @throws java.io.UncheckedIOException if the destination fails to append
+     */
+    public static <A extends Appendable> A appendFg(A out, short index) {
+        if (DISABLED) {
+            return out;
+        }
+
+        return append(out, fg(index));
+    }
+
+    /**
+     * Appends the ANSI escape sequence to set the foreground to the given red, green and blue components.
+     * Behaves like {@link #fg(int, int, int)}, but writes to the destination instead of creating a String.
+     *
+     * <pre>{@code
+     *      // Appends "Hello!" in gold
+     *      Colors.appendFg(line, 255, 192, 0).append("Hello!");
+     * }</pre>
+     *
+     * @param out   A destination like a {@link StringBuilder} or {@link java.io.Writer}
+     * @param red   red component (0 - 255)
+     * @param green green component (0 - 255)
+     * @param blue  blue component (0 - 255)
+     * @return the given destination
+     * @throws java.io.UncheckedIOException if the destination fails to append
+     */
+    public static <A extends Appendable> A appendFg(A out, int red, int green, int blue) {
+        if (DISABLED) {
+            return out;
+        }
+
+        return append(out, ANSI_FOREGROUND, pack(red, green, blue));
+    }
+
+    /**
+     * Appends the ANSI escape sequence to set the foreground to the given color value.
+     * Behaves like {@link #fg(int)}, but writes to the destination instead of creating a String.
+     *
+     * @param out   A destination like a {@link StringBuilder} or {@link java.io.Writer}
+     * @param color Color value between 0 and 16777215
+     * @return the given destination
+     * @throws java.io.UncheckedIOException if the destination fails to append
+     */
+    public static <A extends Appendable> A appendFg(A out, int color) {
+        if (DISABLED) {
+            return out;
+        }
+
+        return append(out, ANSI_FOREGROUND, checkColor(color));
+    }
+
+    /**
+     * Appends the ANSI escape sequence to set the foreground to the given hex color.
+     * Behaves like {@link #fg(String)}, but writes to the destination instead of creating a String.
+     *
+     * @param out      A destination like a {@link StringBuilder} or {@link java.io.Writer}
+     * @param hexColor A hex color in the form of '#ffcc00'
+     * @return the given destination
+     * @throws java.io.UncheckedIOException if the destination fails to append
+     */
+    public static <A extends Appendable> A appendFg(A out, String hexColor) {
+        if (DISABLED) {
+            return out;
+        }
+
+        return append(out, ANSI_FOREGROUND, hexToPackedRgb(hexColor));
+    }
+
+    /**
+     * Appends the ANSI escape sequence to set the foreground to the given HSV color.
+     * Behaves like {@link #fg(double, double, double)}, but writes to the destination instead of creating a String.
+     *
+     * @param out        A destination like a {@link StringBuilder} or {@link java.io.Writer}
+     * @param hue        the hue value of the color (in degrees, 0 <= hue <= 360)
+     * @param saturation the saturation value of the color (0.0 <= saturation <= 1.0)
+     * @param value      the value of the color (0.0 <= value <= 1.0)
+     * @return the given destination
+     * @throws java.io.UncheckedIOException if the destination fails to append
+     */
+    public static <A extends Appendable> A appendFg(A out, double hue, double saturation, double value) {
+        if (DISABLED) {
+            return out;
+        }
+
+        return append(out, ANSI_FOREGROUND, hsvToPackedRgb(hue, saturation, value));
+    }
+
+    /**
+     * Appends the ANSI escape sequence to set the background to the given color index.
+     * Behaves like {@link #bg(short)}, but writes to the destination instead of creating a String.
+     *
+     * @param out   A destination like a {@link StringBuilder} or {@link java.io.Writer}
+     * @param index The index of the color as short
+     * @return the given destination
+     * @throws java.io.UncheckedIOException if the destination fails to append
+     */
+    public static <A extends Appendable> A appendBg(A out, short index) {
+        if (DISABLED) {
+            return out;
+        }
+
+        return append(out, bg(index));
+    }
+
+    /**
+     * Appends the ANSI escape sequence to set the background to the given red, green and blue components.
+     * Behaves like {@link #bg(int, int, int)}, but writes to the destination instead of creating a String.
+     *
+     * <pre>{@code
+     *      // Appends "Hello!" on gold background
+     *      Colors.appendBg(line, 255, 192, 0).append("Hello!");
+     * }</pre>
+     *
+     * @param out   A destination like a {@link StringBuilder} or {@link java.io.Writer}
+     * @param red   red component (0 - 255)
+     * @param green green component (0 - 255)
+     * @param blue  blue component (0 - 255)
+     * @return the given destination
+     * @throws java.io.UncheckedIOException if the destination fails to append
+     */
+    public static <A extends Appendable> A appendBg(A out, int red, int green, int blue) {
+        if (DISABLED) {
+            return out;
+        }
+
+        return append(out, ANSI_BACKGROUND, pack(red, green, blue));
+    }
+
+    /**
+     * Appends the ANSI escape sequence to set the background to the given color value.
+     * Behaves like {@link #bg(int)}, but writes to the destination instead of creating a String.
+     *
+     * @param out   A destination like a {@link StringBuilder} or {@link java.io.Writer}
+     * @param color Color value between 0 and 16777215
+     * @return the given destination
+     * @throws java.io.UncheckedIOException if the destination fails to append
+     */
+    public static <A extends Appendable> A appendBg(A out, int color) {
+        if (DISABLED) {
+            return out;
+        }
+
+        return append(out, ANSI_BACKGROUND, checkColor(color));
+    }
+
+    /**
+     * Appends the ANSI escape sequence to set the background to the given hex color.
+     * Behaves like {@link #bg(String)}, but writes to the destination instead of creating a String.
+     *
+     * @param out      A destination like a {@link StringBuilder} or {@link java.io.Writer}
+     * @param hexColor A hex color in the form of '#ffcc00'
+     * @return the given destination
+     * @throws java.io.UncheckedIOException if the destination fails to append
+     */
+    public static <A extends Appendable> A appendBg(A out, String hexColor) {
+        if (DISABLED) {
+            return out;
+        }
+
+        return append(out, ANSI_BACKGROUND, hexToPackedRgb(hexColor));
+    }
+
+    /**
+     * Appends the ANSI escape sequence to set the background to the given HSV color.
+     * Behaves like {@link #bg(double, double, double)}, but writes to the destination instead of creating a String.
+     *
+     * @param out        A destination like a {@link StringBuilder} or {@link java.io.Writer}
+     * @param hue        the hue value of the color (in degrees, 0 <= hue <= 360)
+     * @param saturation the saturation value of the color (0.0 <= saturation <= 1.0)
+     * @param value      the value of the color (0.0 <= value <= 1.0)
+     * @return the given destination
+     * @throws java.io.UncheckedIOException if the destination fails to append
+     */
+    public static <A extends Appendable> A appendBg(A out, double hue, double saturation, double value) {
+        if (DISABLED) {
+            return out;
+        }
+
+        return append(out, ANSI_BACKGROUND, hsvToPackedRgb(hue, saturation, value));
+    }
+
+    /**
+     * Puts the ANSI color reset sequence as ASCII bytes into the given buffer.
+     *
+     * <pre>{@code
+     *      ByteBuffer buffer = ByteBuffer.allocateDirect(4096);
+     *      Colors.putFg(buffer, 0xffcc00);
+     *      buffer.put("Hello!".getBytes(StandardCharsets.US_ASCII));
+     *      Colors.putReset(buffer);
+     *      channel.write((ByteBuffer) buffer.flip());
+     * }</pre>
+     *
+     * @param dst A heap or direct buffer, written at its position
+     * @return Number of bytes written
+     * @throws java.nio.BufferOverflowException if the sequence does not fit, nothing is written in that case
+     */
+    public static int putReset(java.nio.ByteBuffer dst) {
+        if (DISABLED) {
+            return 0;
+        }
+
+        return put(dst, reset());
+    }
+
+    /**
+     * Puts the ANSI escape sequence to set the foreground to the given color index as ASCII bytes into the given buffer.
+     *
+     * @param dst   A heap or direct buffer, written at its position
+     * @param index The index of the color as short
+     * @return Number of bytes written
+     * @throws java.nio.BufferOverflowException if the sequence does not fit, nothing is written in that case
+     * @see #fg(short)
+     */
+    public static int putFg(java.nio.ByteBuffer dst, short index) {
+        if (DISABLED) {
+            return 0;
+        }
+
+        return put(dst, fg(index));
+    }
+
+    /**
+     * Puts the ANSI escape sequence to set the foreground to the given red, green and blue components
+     * as ASCII bytes into the given buffer.
+     *
+     * @param dst   A heap or direct buffer, written at its position
+     * @param red   red component (0 - 255)
+     * @param green green component (0 - 255)
+     * @param blue  blue component (0 - 255)
+     * @return Number of bytes written
+     * @throws java.nio.BufferOverflowException if the sequence does not fit, nothing is written in that case
+     * @see #fg(int, int, int)
+     */
+    public static int putFg(java.nio.ByteBuffer dst, int red, int green, int blue) {
+        if (DISABLED) {
+            return 0;
+        }
+
+        return put(dst, ANSI_FOREGROUND, pack(red, green, blue));
+    }
+
+    /**
+     * Puts the ANSI escape sequence to set the foreground to the given color value as ASCII bytes into the given buffer.
+     *
+     * @param dst A heap or direct buffer, written at its position
+     * @param rgb Color value between 0 and 16777215
+     * @return Number of bytes written
+     * @throws java.nio.BufferOverflowException if the sequence does not fit, nothing is written in that case
+     * @see #fg(int)
+     */
+    public static int putFg(java.nio.ByteBuffer dst, int rgb) {
+        if (DISABLED) {
+            return 0;
+        }
+
+        return put(dst, ANSI_FOREGROUND, checkColor(rgb));
+    }
+
+    /**
+     * Puts the ANSI escape sequence to set the background to the given color index as ASCII bytes into the given buffer.
+     *
+     * @param dst   A heap or direct buffer, written at its position
+     * @param index The index of the color as short
+     * @return Number of bytes written
+     * @throws java.nio.BufferOverflowException if the sequence does not fit, nothing is written in that case
+     * @see #bg(short)
+     */
+    public static int putBg(java.nio.ByteBuffer dst, short index) {
+        if (DISABLED) {
+            return 0;
+        }
+
+        return put(dst, bg(index));
+    }
+
+    /**
+     * Puts the ANSI escape sequence to set the background to the given red, green and blue components
+     * as ASCII bytes into the given buffer.
+     *
+     * @param dst   A heap or direct buffer, written at its position
+     * @param red   red component (0 - 255)
+     * @param green green component (0 - 255)
+     * @param blue  blue component (0 - 255)
+     * @return Number of bytes written
+     * @throws java.nio.BufferOverflowException if the sequence does not fit, nothing is written in that case
+     * @see #bg(int, int, int)
+     */
+    public static int putBg(java.nio.ByteBuffer dst, int red, int green, int blue) {
+        if (DISABLED) {
+            return 0;
+        }
+
+        return put(dst, ANSI_BACKGROUND, pack(red, green, blue));
+    }
+
+    /**
+     * Puts the ANSI escape sequence to set the background to the given color value as ASCII bytes into the given buffer.
+     *
+     * @param dst A heap or direct buffer, written at its position
+     * @param rgb Color value between 0 and 16777215
+     * @return Number of bytes written
+     * @throws java.nio.BufferOverflowException if the sequence does not fit, nothing is written in that case
+     * @see #bg(int)
+     */
+    public static int putBg(java.nio.ByteBuffer dst, int rgb) {
+        if (DISABLED) {
+            return 0;
+        }
+
+        return put(dst, ANSI_BACKGROUND, checkColor(rgb));
+    }
+
+    /**
+     * Packs red, green and blue components into a single color value.
+     *
+     * <pre>{@code
+     *      int gold = Colors.pack(255, 192, 0); // 0xffc000
+     * }</pre>
+     *
+     * @param red   red component (0 - 255)
+     * @param green green component (0 - 255)
+     * @param blue  blue component (0 - 255)
+     * @return Color value in the form of 0xRRGGBB
+     */
+    public static int pack(int red, int green, int blue) {
+        checkComponent(red);
+        checkComponent(green);
+        checkComponent(blue);
+        return (red << 16) | (green << 8) | blue;
+    }
+
+    /**
+     * Extracts the red component of a packed color value.
+     *
+     * @param rgb Color value in the form of 0xRRGGBB
+     * @return red component (0 - 255)
+     */
+    public static int red(int rgb) {
+        return (rgb >> 16) & 0xFF;
+    }
+
+    /**
+     * Extracts the green component of a packed color value.
+     *
+     * @param rgb Color value in the form of 0xRRGGBB
+     * @return green component (0 - 255)
+     */
+    public static int green(int rgb) {
+        return (rgb >> 8) & 0xFF;
+    }
+
+    /**
+     * Extracts the blue component of a packed color value.
+     *
+     * @param rgb Color value in the form of 0xRRGGBB
+     * @return blue component (0 - 255)
+     */
+    public static int blue(int rgb) {
+        return rgb & 0xFF;
+    }
+
+    /**
+     * Converts an integer value color to RGB (red, green, blue) components.
+     *
+     * @param color A color value between 0 and 16777215
+     * @return an integer array containing the RGB values of the color (in range 0-255)
+     */
+    public static int[] intToRgb(int color) {
+        checkColor(color);
+        return new int[]{red(color), green(color), blue(color)};
+    }
+
+    /**
+     * Converts a given hex color to RGB (red, green, blue) components.
+     *
+     * @param hexColor A hex color in the form of "#ffcc00", see {@link #hexToPackedRgb(String)} for all accepted forms
+     * @return an integer array containing the RGB values of the color (in range 0-255)
+     */
+    public static int[] hexToRgb(String hexColor) {
+        int rgb = hexToPackedRgb(hexColor);
+        return new int[]{red(rgb), green(rgb), blue(rgb)};
+    }
+
+    /**
+     * Converts a given hex color to a packed color value.
+     * <p>
+     * Besides the usual "#ffcc00" this accepts the short form "#fc0", the forms with an alpha channel "#ffcc00ff"
+     * and "#fc0f", as well as all of them without the leading '#'. The alpha channel is ignored.
+     *
+     * @param hexColor A hex color in the form of "#ffcc00"
+     * @return Color value in the form of 0xRRGGBB
+     */
+    public static int hexToPackedRgb(String hexColor) {
+        int start = hexColor.length() > 0 && hexColor.charAt(0) == '#' ? 1 : 0;
+        int digits = hexColor.length() - start;
+        if (digits != 3 && digits != 4 && digits != 6 && digits != 8) {
+            throw invalidHexColor();
+        }
+
+        int color = 0;
+        for (int i = start; i < hexColor.length(); i++) {
+            char c = hexColor.charAt(i);
+            int digit = c < HEX_DIGITS.length ? HEX_DIGITS[c] : -1;
+            if (digit < 0) {
+                throw invalidHexColor();
+            }
+            color = (color << 4) | digit;
+        }
+
+        switch (digits) {
+            case 3:
+            case 4:
+                // Drops the alpha digit of "#fc0f", then doubles every digit
+                color >>>= 4 * (digits - 3);
+                return ((color & 0xF00) << 8 | (color & 0xF0) << 4 | (color & 0xF)) * 0x11;
+            case 8:
+                return color >>> 8;
+            default:
+                return color;
+        }
+    }
+
+    private static IllegalArgumentException invalidHexColor() {
+        return new IllegalArgumentException("Color must be in the format '#ffcc00', '#fc0', '#ffcc00ff' or '#fc0f'");
+    }
+
+    /**
+     * Builds the default xterm palette: 16 system colors, a 6 x 6 x 6 color cube and 24 shades of grey.
+     *
+     * @return Packed colors indexed by their palette index
+     */
+    private static int[] xtermPalette() {
+        int[] system = {
+                0x000000, 0xcd0000, 0x00cd00, 0xcdcd00, 0x0000ee, 0xcd00cd, 0x00cdcd, 0xe5e5e5,
+                0x7f7f7f, 0xff0000, 0x00ff00, 0xffff00, 0x5c5cff, 0xff00ff, 0x00ffff, 0xffffff
+        };
+        int[] levels = {0, 95, 135, 175, 215, 255};
+        int[] palette = new int[256];
+        System.arraycopy(system, 0, palette, 0, system.length);
+        for (int i = 0; i < 216; i++) {
+            palette[16 + i] = (levels[i / 36] << 16) | (levels[i / 6 % 6] << 8) | levels[i % 6];
+        }
+        for (int i = 0; i < 24; i++) {
+            int grey = 8 + 10 * i;
+            palette[232 + i] = (grey << 16) | (grey << 8) | grey;
+        }
+        return palette;
+    }
+
+    /**
+     * Finds the entry of the color cube or the greys of the 256 color palette (16 - 255) with the smallest Euclidean
+     * RGB distance. The distance to the cube is the sum of the distances of the components, so the nearest cube entry
+     * is made of the nearest level of every component. The nearest grey is the one nearest to the average.
+     *
+     * @param rgb Color value in the form of 0xRRGGBB
+     * @return Palette index of the nearest entry, the lower index on ties
+     */
+    private static int nearestIndex256(int rgb) {
+        int cube = 16 + 36 * nearestCubeLevel(red(rgb)) + 6 * nearestCubeLevel(green(rgb))
+                + nearestCubeLevel(blue(rgb));
+        // The greys are 8, 18, ..., 238, so the sum of the components is compared to 24, 54, ..., 714
+        int sum = red(rgb) + green(rgb) + blue(rgb);
+        int grey = 232 + Math.min(Math.max(sum - 10, 0) / 30, 23);
+        return squaredDistance(rgb, XTERM_PALETTE[grey]) < squaredDistance(rgb, XTERM_PALETTE[cube]) ? grey : cube;
+    }
+
+    /**
+     * @param component Red, green or blue (0 - 255)
+     * @return The nearest of the levels 0, 95, 135, 175, 215 and 255 of the color cube (0 - 5), the lower one on ties
+     */
+    private static int nearestCubeLevel(int component) {
+        return component < 48 ? 0 : component < 116 ? 1 : (component - 36) / 40;
+    }
+
+    private static int squaredDistance(int rgb, int other) {
+        int red = red(rgb) - red(other);
+        int green = green(rgb) - green(other);
+        int blue = blue(rgb) - blue(other);
+        return red * red + green * green + blue * blue;
+    }
+
+    /**
+     * Builds the lookup table for hex digits.
+     *
+     * @return Values of the hex digits indexed by their character, -1 for all other ASCII characters
+     */
+    private static byte[] hexDigits() {
+        byte[] digits = new byte[128];
+        java.util.Arrays.fill(digits, (byte) -1);
+        for (int i = 0; i < 16; i++) {
+            digits[Character.forDigit(i, 16)] = (byte) i;
+            digits[Character.toUpperCase(Character.forDigit(i, 16))] = (byte) i;
+        }
+        return digits;
+    }
+
+    /**
+     * Converts a given HSV (hue, saturation, value) color to a packed color value.
+     * <p>
+     * https://www.cs.rit.edu/~ncs/color/t_convert.html
+     *
+     * @param hue        the hue value of the color (in degrees, 0 <= hue <= 360)
+     * @param saturation the saturation value of the color (0.0 <= saturation <= 1.0)
+     * @param value      the value of the color (0.0 <= value <= 1.0)
+     * @return Color value in the form of 0xRRGGBB
+     */
+    public static int hsvToPackedRgb(double hue, double saturation, double value) {
+        if (hue < 0 || hue > 360) {
+            throw new IllegalArgumentException("Hue must be >= 0.0 and <= 360.0.");
+        }
+        if (saturation < 0 || saturation > 1) {
+            throw new IllegalArgumentException("Saturation must be >= 0.0 and <= 1.0.");
+        }
+        if (value < 0 || value > 1) {
+            throw new IllegalArgumentException("Value must be >= 0.0 and <= 1.0.");
+        }
+
+        double sectorDouble = hue / 60.0;
+        // Only 360 degrees reach 6, subtracting is exact and much cheaper than the floating point remainder
+        if (sectorDouble >= 6) {
+            sectorDouble -= 6;
+        }
+        int sector = (int) sectorDouble;
+        double f = sectorDouble - sector;
+        double p = value * (1 - saturation);
+        double q = value * (1 - f * saturation);
+        double t = value * (1 - (1 - f) * saturation);
+        double red;
+        double green;
+        double blue;
+        switch (sector) {
+            case 0:
+                red = value;
+                green = t;
+                blue = p;
+                break;
+            case 1:
+                red = q;
+                green = value;
+                blue = p;
+                break;
+            case 2:
+                red = p;
+                green = value;
+                blue = t;
+                break;
+            case 3:
+                red = p;
+                green = q;
+                blue = value;
+                break;
+            case 4:
+                red = t;
+                green = p;
+                blue = value;
+                break;
             case 5:
-                rgb = new double[]{value, p, q};
+                red = value;
+                green = p;
+                blue = q;
+                break;
+            default:
+                red = 0;
+                green = 0;
+                blue = 0;
+                break;
+        }
+        return ((int) (red * 255) << 16) | ((int) (green * 255) << 8) | (int) (blue * 255);
+    }
+
+    /**
+     * Converts a packed color value to HSV (hue, saturation, value).
+     *
+     * @param rgb Color value in the form of 0xRRGGBB
+     * @param hsv Destination for hue (0.0 - 360.0), saturation (0.0 - 1.0) and value (0.0 - 1.0)
+     */
+    private static void rgbToHsv(int rgb, double[] hsv) {
+        hsv[0] = hue(rgb);
+        hsv[1] = saturation(rgb);
+        hsv[2] = value(rgb);
+    }
+
+    /**
+     * @param rgb Color value in the form of 0xRRGGBB
+     * @return The hue in degrees (0.0 - 360.0), 0 for greys
+     */
+    private static double hue(int rgb) {
+        int red = red(rgb);
+        int green = green(rgb);
+        int blue = blue(rgb);
+        int max = Math.max(red, Math.max(green, blue));
+        int delta = max - Math.min(red, Math.min(green, blue));
+        if (delta == 0) {
+            return 0;
+        }
+        if (max == red) {
+            double hue = 60.0 * (green - blue) / delta;
+            return hue < 0 ? hue + 360 : hue;
+        }
+        if (max == green) {
+            return 60.0 * (blue - red) / delta + 120;
+        }
+        return 60.0 * (red - green) / delta + 240;
+    }
+
+    /**
+     * @param rgb Color value in the form of 0xRRGGBB
+     * @return The HSV saturation (0.0 - 1.0)
+     */
+    private static double saturation(int rgb) {
+        int max = Math.max(red(rgb), Math.max(green(rgb), blue(rgb)));
+        int min = Math.min(red(rgb), Math.min(green(rgb), blue(rgb)));
+        return max == 0 ? 0 : (double) (max - min) / max;
+    }
+
+    /**
+     * @param rgb Color value in the form of 0xRRGGBB
+     * @return The HSV value (0.0 - 1.0)
+     */
+    private static double value(int rgb) {
+        return Math.max(red(rgb), Math.max(green(rgb), blue(rgb))) / 255.0;
+    }
+
+    /**
+     * Converts whole arrays of HSV colors to packed color values, e.g. a column of metric values.
+     * Behaves like {@link #hsvToPackedRgb(double, double, double)} for every index, without allocating anything.
+     *
+     * <pre>{@code
+     *      int[] colors = new int[load.length];
+     *      Colors.hsvToPackedRgb(hues, saturations, values, colors);
+     * }</pre>
+     *
+     * @param hues        the hue values of the colors (in degrees, 0 <= hue <= 360)
+     * @param saturations the saturation values of the colors (0.0 <= saturation <= 1.0)
+     * @param values      the values of the colors (0.0 <= value <= 1.0)
+     * @param colors      Destination for the color values in the form of 0xRRGGBB
+     * @throws IllegalArgumentException if the arrays differ in length or a component is out of range, the colors
+     *                                  before the invalid one are converted already
+     */
+    public static void hsvToPackedRgb(double[] hues, double[] saturations, double[] values, int[] colors) {
+        int length = colors.length;
+        checkLength(hues.length, length);
+        checkLength(saturations.length, length);
+        checkLength(values.length, length);
+        for (int i = 0; i < length; i++) {
+            colors[i] = hsvToPackedRgb(hues[i], saturations[i], values[i]);
+        }
+    }
+
+    /**
+     * Converts whole arrays of packed color values to HSV, the counterpart of
+     * {@link #hsvToPackedRgb(double[], double[], double[], int[])}. Greys get a hue of 0.
+     *
+     * @param colors      Color values between 0 and 16777215
+     * @param hues        Destination for the hue values (in degrees, 0 <= hue < 360)
+     * @param saturations Destination for the saturation values (0.0 <= saturation <= 1.0)
+     * @param values      Destination for the values (0.0 <= value <= 1.0)
+     * @throws IllegalArgumentException if the arrays differ in length or a color is out of range, the colors
+     *                                  before the invalid one are converted already
+     */
+    public static void packedRgbToHsv(int[] colors, double[] hues, double[] saturations, double[] values) {
+        int length = colors.length;
+        checkLength(hues.length, length);
+        checkLength(saturations.length, length);
+        checkLength(values.length, length);
+        for (int i = 0; i < length; i++) {
+            int rgb = checkColor(colors[i]);
+            hues[i] = hue(rgb);
+            saturations[i] = saturation(rgb);
+            values[i] = value(rgb);
+        }
+    }
+
+    /**
+     * Converts a whole array of hex colors to packed color values.
+     * Behaves like {@link #hexToPackedRgb(String)} for every index, without allocating anything.
+     *
+     * @param hexColors Hex colors in the form of "#ffcc00", see {@link #hexToPackedRgb(String)} for all accepted forms
+     * @param colors    Destination for the color values in the form of 0xRRGGBB
+     * @throws IllegalArgumentException if the arrays differ in length or a hex color is invalid, the colors before
+     *                                  the invalid one are converted already
+     */
+    public static void hexToPackedRgb(String[] hexColors, int[] colors) {
+        int length = colors.length;
+        checkLength(hexColors.length, length);
+        for (int i = 0; i < length; i++) {
+            colors[i] = hexToPackedRgb(hexColors[i]);
+        }
+    }
+
+    private static void checkLength(int length, int expected) {
+        if (length != expected) {
+            throw new IllegalArgumentException("Arrays must have the same length");
+        }
+    }
+
+    /**
+     * Removes all ANSI escape sequences from a text, not only the ones written by this class.
+     *
+     * <pre>{@code
+     *      String plain = Colors.stripAnsi(Colors.fg("#ffcc00") + "Hello!" + Colors.reset()); // "Hello!"
+     * }</pre>
+     *
+     * @param text Text with escape sequences
+     * @return The text without escape sequences, the same text if there were none
+     * @see AnsiStripper
+     */
+    public static String stripAnsi(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == AnsiStripper.ESC) {
+                return new AnsiStripper().strip(text, new StringBuilder(text.length())).toString();
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Returns the number of terminal columns a text occupies, ignoring its escape sequences.
+     *
+     * <pre>{@code
+     *      Colors.visibleWidth(Colors.fg("#ffcc00") + "Hello!" + Colors.reset()); // 6
+     * }</pre>
+     * <p>
+     * East Asian wide and fullwidth characters and most emoji take two columns, combining marks, format characters
+     * like U+200B and control characters none. Emoji joined with U+200D count each of their parts. The widths are
+     * looked up in a table, so measuring does not allocate.
+     *
+     * @param text Text with or without escape sequences
+     * @return The number of columns
+     */
+    public static int visibleWidth(CharSequence text) {
+        int width = 0;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (c >= ' ' && c < 0x7F) {
+                width++;
+                i++;
+            } else if (c == AnsiStripper.ESC) {
+                i = AnsiStripper.skip(text, i);
+            } else {
+                int codePoint = Character.codePointAt(text, i);
+                width += Widths.of(codePoint);
+                i += Character.charCount(codePoint);
+            }
+        }
+        return width;
+    }
+
+    /**
+     * Pads a text with spaces on the right until it occupies the given number of columns.
+     *
+     * <pre>{@code
+     *      System.out.println(Colors.padRight(Colors.fg("#ffcc00") + name + Colors.reset(), 20) + "|");
+     * }</pre>
+     *
+     * @param text  Text with or without escape sequences
+     * @param width Number of columns, texts that are already as wide or wider are returned unchanged
+     * @return The padded text
+     * @see #visibleWidth(CharSequence)
+     */
+    public static String padRight(CharSequence text, int width) {
+        return appendPadRight(new StringBuilder(text.length() + Math.max(0, width)), text, width).toString();
+    }
+
+    /**
+     * Pads a text with spaces on the left until it occupies the given number of columns, e.g. to align numbers.
+     *
+     * @param text  Text with or without escape sequences
+     * @param width Number of columns, texts that are already as wide or wider are returned unchanged
+     * @return The padded text
+     * @see #visibleWidth(CharSequence)
+     */
+    public static String padLeft(CharSequence text, int width) {
+        return appendPadLeft(new StringBuilder(text.length() + Math.max(0, width)), text, width).toString();
+    }
+
+    /**
+     * Cuts a text down to the given number of columns.
+     * <p>
+     * All escape sequences are kept, also those after the cut, so a trailing reset still ends the colors. A wide
+     * character that would only fit halfway is dropped, the result may then be one column narrower.
+     *
+     * <pre>{@code
+     *      String cell = Colors.padRight(Colors.truncate(message, 40), 40);
+     * }</pre>
+     *
+     * @param text  Text with or without escape sequences
+     * @param width Maximum number of columns
+     * @return The text without the characters beyond the given width
+     * @see #visibleWidth(CharSequence)
+     */
+    public static String truncate(CharSequence text, int width) {
+        return appendTruncated(new StringBuilder(text.length()), text, width).toString();
+    }
+
+    /**
+     * Appends a text and pads it with spaces on the right until it occupies the given number of columns.
+     *
+     * @param out   A destination like a {@link StringBuilder} or {@link java.io.Writer}
+     * @param text  Text with or without escape sequences
+     * @param width Number of columns, texts that are already as wide or wider are appended unchanged
+     * @return the given destination
+     * @throws java.io.UncheckedIOException if the destination fails to append
+     * @see #padRight(CharSequence, int)
+     */
+    public static <A extends Appendable> A appendPadRight(A out, CharSequence text, int width) {
+        try {
+            out.append(text);
+            return appendSpaces(out, width - visibleWidth(text));
+        } catch (java.io.IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Pads a text with spaces on the left until it occupies the given number of columns and appends it.
+     *
+     * @param out   A destination like a {@link StringBuilder} or {@link java.io.Writer}
+     * @param text  Text with or without escape sequences
+     * @param width Number of columns, texts that are already as wide or wider are appended unchanged
+     * @return the given destination
+     * @throws java.io.UncheckedIOException if the destination fails to append
+     * @see #padLeft(CharSequence, int)
+     */
+    public static <A extends Appendable> A appendPadLeft(A out, CharSequence text, int width) {
+        try {
+            appendSpaces(out, width - visibleWidth(text)).append(text);
+            return out;
+        } catch (java.io.IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Appends a text cut down to the given number of columns.
+     *
+     * @param out   A destination like a {@link StringBuilder} or {@link java.io.Writer}
+     * @param text  Text with or without escape sequences
+     * @param width Maximum number of columns
+     * @return the given destination
+     * @throws java.io.UncheckedIOException if the destination fails to append
+     * @see #truncate(CharSequence, int)
+     */
+    public static <A extends Appendable> A appendTruncated(A out, CharSequence text, int width) {
+        try {
+            int columns = 0;
+            int length = text.length();
+            int i = 0;
+            while (i < length) {
+                char c = text.charAt(i);
+                if (c >= ' ' && c < 0x7F) {
+                    if (columns >= width) {
+                        break;
+                    }
+                    columns++;
+                    i++;
+                } else if (c == AnsiStripper.ESC) {
+                    i = AnsiStripper.skip(text, i);
+                } else {
+                    int codePoint = Character.codePointAt(text, i);
+                    int charWidth = Widths.of(codePoint);
+                    if (columns + charWidth > width) {
+                        break;
+                    }
+                    columns += charWidth;
+                    i += Character.charCount(codePoint);
+                }
+            }
+            out.append(text, 0, i);
+
+            // Nothing visible fits anymore, not even characters without width, but the sequences are still needed
+            while (i < length) {
+                if (text.charAt(i) == AnsiStripper.ESC) {
+                    int end = AnsiStripper.skip(text, i);
+                    out.append(text, i, end);
+                    i = end;
+                } else {
+                    i++;
+                }
+            }
+            return out;
+        } catch (java.io.IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+    }
+
+    private static <A extends Appendable> A appendSpaces(A out, int count) throws java.io.IOException {
+        for (int i = 0; i < count; i++) {
+            out.append(' ');
+        }
+        return out;
+    }
+
+    /**
+     * Renders an image as colored half blocks, two pixels per character: the upper one as the foreground of the
+     * upper half block (U+2580) and the lower one as the background.
+     *
+     * <pre>{@code
+     *      BufferedImage image = ImageIO.read(file);
+     *      int[] argb = image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+     *      System.out.print(Colors.halfBlocks(argb, image.getWidth(), image.getHeight()));
+     * }</pre>
+     * <p>
+     * Pixels with an alpha below 128 are transparent and show the terminal's background. Rows are rendered in
+     * parallel on the common fork/join pool and written with an {@link AnsiStateWriter}, so neighbouring pixels of
+     * the same color cost no escape sequences. Every row ends with a reset and a line break.
+     *
+     * @param argb   Pixels in the form of 0xAARRGGBB, row by row like {@code BufferedImage.getRGB} returns them
+     * @param width  Width of the image in pixels
+     * @param height Height of the image in pixels, an odd last row is rendered as upper halves only
+     * @return The image as text with ANSI escape sequences
+     */
+    public static String halfBlocks(int[] argb, int width, int height) {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Width and height must be >= 1");
+        }
+        if (argb.length < (long) width * height) {
+            throw new IllegalArgumentException("Raster must hold width * height pixels");
+        }
+
+        int lines = (height + 1) / 2;
+        StringBuilder[] chunks = new StringBuilder[(lines + HalfBlocks.CHUNK_LINES - 1) / HalfBlocks.CHUNK_LINES];
+        HalfBlocks task = new HalfBlocks(argb, width, height, chunks, 0, chunks.length);
+        if (chunks.length == 1) {
+            task.compute();
+        } else {
+            java.util.concurrent.ForkJoinPool.commonPool().invoke(task);
+        }
+
+        // Stitch the chunks together in order
+        int length = 0;
+        for (StringBuilder chunk : chunks) {
+            length += chunk.length();
+        }
+        StringBuilder out = new StringBuilder(length);
+        for (StringBuilder chunk : chunks) {
+            out.append(chunk);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Interpolates a gradient between two colors.
+     *
+     * <pre>{@code
+     *      int[] heat = Colors.gradient(0x0000ff, 0xff0000, 10, Colors.ColorSpace.OKLAB);
+     * }</pre>
+     * <p>
+     * The first and the last color are exactly the given ones. Recently requested gradients are cached, so asking
+     * for the same gradient again only copies the array.
+     *
+     * @param from  Color value of the first step between 0 and 16777215
+     * @param to    Color value of the last step between 0 and 16777215
+     * @param steps Number of colors (1 - 4096)
+     * @param space The color space to interpolate in
+     * @return A new array with the color values of all steps
+     */
+    public static int[] gradient(int from, int to, int steps, ColorSpace space) {
+        Gradients.Key key = new Gradients.Key(checkColor(from), checkColor(to), checkSteps(steps), space, null, null);
+        int[] colors = (int[]) Gradients.get(key);
+        if (colors == null) {
+            colors = interpolate(from, to, steps, space);
+            Gradients.put(key, colors);
+        }
+        return colors.clone();
+    }
+
+    /**
+     * Returns the escape sequences that set the foreground to each step of a gradient.
+     *
+     * <pre>{@code
+     *      String[] heat = Colors.fgGradient(0x0000ff, 0xff0000, text.length(), Colors.ColorSpace.OKLAB);
+     *      for (int i = 0; i < text.length(); i++) {
+     *          System.out.print(heat[i] + text.charAt(i));
+     *      }
+     *      System.out.print(Colors.reset());
+     * }</pre>
+     *
+     * @param from  Color value of the first step between 0 and 16777215
+     * @param to    Color value of the last step between 0 and 16777215
+     * @param steps Number of colors (1 - 4096)
+     * @param space The color space to interpolate in
+     * @return A new array with the ANSI escape sequences of all steps
+     * @see #gradient(int, int, int, ColorSpace)
+     */
+    public static String[] fgGradient(int from, int to, int steps, ColorSpace space) {
+        return sequences(ANSI_FOREGROUND, from, to, steps, space);
+    }
+
+    /**
+     * Returns the escape sequences that set the background to each step of a gradient.
+     *
+     * @param from  Color value of the first step between 0 and 16777215
+     * @param to    Color value of the last step between 0 and 16777215
+     * @param steps Number of colors (1 - 4096)
+     * @param space The color space to interpolate in
+     * @return A new array with the ANSI escape sequences of all steps
+     * @see #gradient(int, int, int, ColorSpace)
+     */
+    public static String[] bgGradient(int from, int to, int steps, ColorSpace space) {
+        return sequences(ANSI_BACKGROUND, from, to, steps, space);
+    }
+
+    private static int checkSteps(int steps) {
+        if (steps < 1 || steps > Gradients.MAX_STEPS) {
+            throw new IllegalArgumentException("Steps must be >= 1 and <= " + Gradients.MAX_STEPS);
+        }
+        return steps;
+    }
+
+    /**
+     * Looks up or builds the sequences of a gradient for the current color depth.
+     *
+     * @param level Background (48) or foreground (38)
+     * @return A new array with the ANSI escape sequences of all steps
+     */
+    private static String[] sequences(String level, int from, int to, int steps, ColorSpace space) {
+        if (DISABLED) {
+            String[] empty = new String[checkSteps(steps)];
+            java.util.Arrays.fill(empty, "");
+            return empty;
+        }
+
+        ColorDepth depth = colorDepth;
+        Gradients.Key key = new Gradients.Key(checkColor(from), checkColor(to), checkSteps(steps), space, level, depth);
+        String[] sequences = (String[]) Gradients.get(key);
+        if (sequences == null) {
+            sequences = new String[steps];
+            if (depth == ColorDepth.NONE) {
+                java.util.Arrays.fill(sequences, "");
+            } else {
+                int[] colors = gradient(from, to, steps, space);
+                char[] buffer = SCRATCH.get();
+                for (int i = 0; i < steps; i++) {
+                    sequences[i] = new String(buffer, 0, writeRgbSequence(buffer, level, colors[i], depth));
+                }
+            }
+            Gradients.put(key, sequences);
+        }
+        return sequences.clone();
+    }
+
+    /**
+     * Computes the steps of a gradient in one loop.
+     *
+     * @return The color values of all steps, starting with {@code from} and ending with {@code to}
+     */
+    private static int[] interpolate(int from, int to, int steps, ColorSpace space) {
+        if (space == null) {
+            throw new IllegalArgumentException("Color space must not be null");
+        }
+
+        int[] colors = new int[steps];
+        int last = steps - 1;
+        switch (space) {
+            case HSV: {
+                double[] start = new double[3];
+                double[] end = new double[3];
+                rgbToHsv(from, start);
+                rgbToHsv(to, end);
+                // Greys have no hue, so they take the hue of the other end instead of fading through red
+                if (start[1] == 0) {
+                    start[0] = end[0];
+                } else if (end[1] == 0) {
+                    end[0] = start[0];
+                }
+                // Go the short way around the hue circle
+                double hueDelta = end[0] - start[0];
+                if (hueDelta > 180) {
+                    hueDelta -= 360;
+                } else if (hueDelta < -180) {
+                    hueDelta += 360;
+                }
+                for (int i = 1; i < last; i++) {
+                    double t = (double) i / last;
+                    double hue = start[0] + hueDelta * t;
+                    hue = hue < 0 ? hue + 360 : hue >= 360 ? hue - 360 : hue;
+                    colors[i] = hsvToPackedRgb(hue, start[1] + (end[1] - start[1]) * t,
+                            start[2] + (end[2] - start[2]) * t);
+                }
+                break;
+            }
+            case OKLAB: {
+                double l = Oklab.l(red(from), green(from), blue(from));
+                double m = Oklab.m(red(from), green(from), blue(from));
+                double s = Oklab.s(red(from), green(from), blue(from));
+                double startLightness = Oklab.lightness(l, m, s);
+                double startA = Oklab.a(l, m, s);
+                double startB = Oklab.b(l, m, s);
+                l = Oklab.l(red(to), green(to), blue(to));
+                m = Oklab.m(red(to), green(to), blue(to));
+                s = Oklab.s(red(to), green(to), blue(to));
+                double lightnessDelta = Oklab.lightness(l, m, s) - startLightness;
+                double aDelta = Oklab.a(l, m, s) - startA;
+                double bDelta = Oklab.b(l, m, s) - startB;
+                for (int i = 1; i < last; i++) {
+                    double t = (double) i / last;
+                    colors[i] = Oklab.toPackedRgb(startLightness + lightnessDelta * t, startA + aDelta * t,
+                            startB + bDelta * t);
+                }
                 break;
+            }
             default:
-                rgb = new double[]{0, 0, 0};
+                for (int i = 1; i < last; i++) {
+                    int remaining = last - i;
+                    // Integer weights with rounding keep every component within 0 - 255
+                    colors[i] = ((red(from) * remaining + red(to) * i + last / 2) / last) << 16
+                            | ((green(from) * remaining + green(to) * i + last / 2) / last) << 8
+                            | (blue(from) * remaining + blue(to) * i + last / 2) / last;
+                }
                 break;
         }
-        int r = (int) (rgb[0] * 255);
-        int g = (int) (rgb[1] * 255);
-        int b = (int) (rgb[2] * 255);
-        return new int[]{r, g, b};
+        colors[last] = to;
+        colors[0] = from;
+        return colors;
+    }
+
+    /**
+     * A bounded, lock-free cache for RGB escape sequences.
+     * <p>
+     * Useful when the same few thousand colors are used over and over again, as a cached sequence is returned
+     * without encoding anything. Instances can be shared between any number of threads.
+     *
+     * <pre>{@code
+     *      Colors.SequenceCache cache = new Colors.SequenceCache(4096);
+     *      System.out.print(cache.fg(255, 192, 0) + "Hello!" + Colors.reset());
+     * }</pre>
+     * <p>
+     * Entries live in an open addressing table that is probed linearly for a few slots.
+     * When all of those slots are taken, one of them is overwritten, so the cache never grows beyond its capacity.
+     */
+    public static final class SequenceCache {
+        private static final int MAX_PROBES = 8;
+        private static final int BACKGROUND_KEY = 1 << 24;
+        private static final int DEPTH_SHIFT = 25;
+
+        private final java.util.concurrent.atomic.AtomicReferenceArray<Entry> entries;
+        private final int mask;
+        private final java.util.concurrent.atomic.LongAdder hits = new java.util.concurrent.atomic.LongAdder();
+        private final java.util.concurrent.atomic.LongAdder misses = new java.util.concurrent.atomic.LongAdder();
+
+        /**
+         * Creates a cache for up to the given number of sequences.
+         *
+         * @param capacity Maximum number of cached sequences, rounded up to a power of two (at least 16)
+         */
+        public SequenceCache(int capacity) {
+            if (capacity < 1 || capacity > 1 << 26) {
+                throw new IllegalArgumentException("Capacity must be >= 1 and <= 67108864");
+            }
+            int size = Math.max(16, Integer.highestOneBit(capacity - 1) << 1);
+            entries = new java.util.concurrent.atomic.AtomicReferenceArray<>(size);
+            mask = size - 1;
+        }
+
+        /**
+         * Returns the cached ANSI escape sequence to set the foreground to the given red, green and blue components.
+         *
+         * @param red   red component (0 - 255)
+         * @param green green component (0 - 255)
+         * @param blue  blue component (0 - 255)
+         * @return ANSI escape sequence for the given color
+         * @see Colors#fg(int, int, int)
+         */
+        public String fg(int red, int green, int blue) {
+            return get(pack(red, green, blue));
+        }
+
+        /**
+         * Returns the cached ANSI escape sequence to set the foreground to the given color value.
+         *
+         * @param color Color value between 0 and 16777215
+         * @return ANSI escape sequence for the given color
+         * @see Colors#fg(int)
+         */
+        public String fg(int color) {
+            return get(checkColor(color));
+        }
+
+        /**
+         * Returns the cached ANSI escape sequence to set the foreground to the given hex color.
+         *
+         * @param hexColor A hex color in the form of '#ffcc00'
+         * @return ANSI escape sequence for the given color
+         * @see Colors#fg(String)
+         */
+        public String fg(String hexColor) {
+            return get(hexToPackedRgb(hexColor));
+        }
+
+        /**
+         * Returns the cached ANSI escape sequence to set the background to the given red, green and blue components.
+         *
+         * @param red   red component (0 - 255)
+         * @param green green component (0 - 255)
+         * @param blue  blue component (0 - 255)
+         * @return ANSI escape sequence for the given color
+         * @see Colors#bg(int, int, int)
+         */
+        public String bg(int red, int green, int blue) {
+            return get(BACKGROUND_KEY | pack(red, green, blue));
+        }
+
+        /**
+         * Returns the cached ANSI escape sequence to set the background to the given color value.
+         *
+         * @param color Color value between 0 and 16777215
+         * @return ANSI escape sequence for the given color
+         * @see Colors#bg(int)
+         */
+        public String bg(int color) {
+            return get(BACKGROUND_KEY | checkColor(color));
+        }
+
+        /**
+         * Returns the cached ANSI escape sequence to set the background to the given hex color.
+         *
+         * @param hexColor A hex color in the form of '#ffcc00'
+         * @return ANSI escape sequence for the given color
+         * @see Colors#bg(String)
+         */
+        public String bg(String hexColor) {
+            return get(BACKGROUND_KEY | hexToPackedRgb(hexColor));
+        }
+
+        /**
+         * @return Number of lookups that were answered from the cache
+         */
+        public long hits() {
+            return hits.sum();
+        }
+
+        /**
+         * @return Number of lookups that had to build the sequence
+         */
+        public long misses() {
+            return misses.sum();
+        }
+
+        /**
+         * Removes all cached sequences and resets the counters.
+         */
+        public void clear() {
+            for (int i = 0; i <= mask; i++) {
+                entries.set(i, null);
+            }
+            hits.reset();
+            misses.reset();
+        }
+
+        /**
+         * Looks up a sequence for the current color depth and builds it on a miss.
+         *
+         * @param color The packed color, combined with {@link #BACKGROUND_KEY} for backgrounds
+         * @return ANSI escape sequence for the given key
+         */
+        private String get(int color) {
+            ColorDepth depth = colorDepth;
+            if (depth == ColorDepth.NONE) {
+                return "";
+            }
+
+            int key = color | depth.ordinal() << DEPTH_SHIFT;
+            int hash = key * 0x9E3779B9;
+            int start = (hash ^ (hash >>> 16)) & mask;
+            int free = -1;
+            for (int probe = 0; probe < MAX_PROBES; probe++) {
+                int slot = (start + probe) & mask;
+                Entry entry = entries.get(slot);
+                if (entry == null) {
+                    free = slot;
+                    break;
+                }
+                if (entry.key == key) {
+                    hits.increment();
+                    return entry.sequence;
+                }
+            }
+
+            misses.increment();
+            String sequence = build((key & BACKGROUND_KEY) == 0 ? ANSI_FOREGROUND : ANSI_BACKGROUND, key & 0xFFFFFF, depth);
+            if (free < 0) {
+                // All probed slots are taken, evict one of them chosen by hash bits that did not pick the start slot
+                free = (start + (hash >>> 29)) & mask;
+            }
+            entries.lazySet(free, new Entry(key, sequence));
+            return sequence;
+        }
+
+        private static final class Entry {
+            final int key;
+            final String sequence;
+
+            Entry(int key, String sequence) {
+                this.key = key;
+                this.sequence = sequence;
+            }
+        }
+    }
+
+    /**
+     * An immutable combination of foreground, background and attributes that is sent as a single escape sequence.
+     * This is the object counterpart of {@link #sgr(int, int, int)}.
+     * <p>
+     * Instead of three sequences like {@code ESC[1m ESC[38;2;255;204;0m ESC[48;5;236m} a style produces
+     * {@code ESC[1;38;2;255;204;0;48;5;236m}. The sequence is built on first use and kept, so a style is best
+     * created once and reused. Styles can be shared freely between threads.
+     *
+     * <pre>{@code
+     *      Colors.Style warning = Colors.style().fg("#ffcc00").bg((short) 236).bold();
+     *      System.out.print(warning + "Hello!" + Colors.reset());
+     * }</pre>
+     * <p>
+     * Every method returns a new style and leaves the original untouched. The parameters behave like their
+     * counterparts in {@link Colors}.
+     */
+    public static final class Style {
+        static final Style PLAIN = new Style(0, DEFAULT_COLOR, DEFAULT_COLOR);
+
+        private final int attributes;
+        private final int foreground;
+        private final int background;
+        private final String[] sequences = new String[ColorDepth.values().length];
+
+        private Style(int attributes, int foreground, int background) {
+            this.attributes = attributes;
+            this.foreground = foreground;
+            this.background = background;
+        }
+
+        /**
+         * @param index The index of the color as short
+         * @return A style with the given foreground color
+         * @see Colors#fg(short)
+         */
+        public Style fg(short index) {
+            checkComponent(index);
+            return new Style(attributes, INDEXED_COLOR | index, background);
+        }
+
+        /**
+         * @param red   red component (0 - 255)
+         * @param green green component (0 - 255)
+         * @param blue  blue component (0 - 255)
+         * @return A style with the given foreground color
+         * @see Colors#fg(int, int, int)
+         */
+        public Style fg(int red, int green, int blue) {
+            return new Style(attributes, RGB_COLOR | pack(red, green, blue), background);
+        }
+
+        /**
+         * @param color Color value between 0 and 16777215
+         * @return A style with the given foreground color
+         * @see Colors#fg(int)
+         */
+        public Style fg(int color) {
+            return new Style(attributes, RGB_COLOR | checkColor(color), background);
+        }
+
+        /**
+         * @param hexColor A hex color in the form of '#ffcc00'
+         * @return A style with the given foreground color
+         * @see Colors#fg(String)
+         */
+        public Style fg(String hexColor) {
+            return new Style(attributes, RGB_COLOR | hexToPackedRgb(hexColor), background);
+        }
+
+        /**
+         * @param hue        the hue value of the color (in degrees, 0 <= hue <= 360)
+         * @param saturation the saturation value of the color (0.0 <= saturation <= 1.0)
+         * @param value      the value of the color (0.0 <= value <= 1.0)
+         * @return A style with the given foreground color
+         * @see Colors#fg(double, double, double)
+         */
+        public Style fg(double hue, double saturation, double value) {
+            return new Style(attributes, RGB_COLOR | hsvToPackedRgb(hue, saturation, value), background);
+        }
+
+        /**
+         * @param index The index of the color as short
+         * @return A style with the given background color
+         * @see Colors#bg(short)
+         */
+        public Style bg(short index) {
+            checkComponent(index);
+            return new Style(attributes, foreground, INDEXED_COLOR | index);
+        }
+
+        /**
+         * @param red   red component (0 - 255)
+         * @param green green component (0 - 255)
+         * @param blue  blue component (0 - 255)
+         * @return A style with the given background color
+         * @see Colors#bg(int, int, int)
+         */
+        public Style bg(int red, int green, int blue) {
+            return new Style(attributes, foreground, RGB_COLOR | pack(red, green, blue));
+        }
+
+        /**
+         * @param color Color value between 0 and 16777215
+         * @return A style with the given background color
+         * @see Colors#bg(int)
+         */
+        public Style bg(int color) {
+            return new Style(attributes, foreground, RGB_COLOR | checkColor(color));
+        }
+
+        /**
+         * @param hexColor A hex color in the form of '#ffcc00'
+         * @return A style with the given background color
+         * @see Colors#bg(String)
+         */
+        public Style bg(String hexColor) {
+            return new Style(attributes, foreground, RGB_COLOR | hexToPackedRgb(hexColor));
+        }
+
+        /**
+         * @param hue        the hue value of the color (in degrees, 0 <= hue <= 360)
+         * @param saturation the saturation value of the color (0.0 <= saturation <= 1.0)
+         * @param value      the value of the color (0.0 <= value <= 1.0)
+         * @return A style with the given background color
+         * @see Colors#bg(double, double, double)
+         */
+        public Style bg(double hue, double saturation, double value) {
+            return new Style(attributes, foreground, RGB_COLOR | hsvToPackedRgb(hue, saturation, value));
+        }
+
+        /**
+         * @param color A color from one of the {@code Colors.color(...)} methods
+         * @return A style with the given foreground color
+         */
+        public Style fg(Color color) {
+            return new Style(attributes, color.specification(), background);
+        }
+
+        /**
+         * @param color A color from one of the {@code Colors.color(...)} methods
+         * @return A style with the given background color
+         */
+        public Style bg(Color color) {
+            return new Style(attributes, foreground, color.specification());
+        }
+
+        /**
+         * @return A bold version of this style
+         */
+        public Style bold() {
+            return with(BOLD);
+        }
+
+        /**
+         * @return An italic version of this style
+         */
+        public Style italic() {
+            return with(ITALIC);
+        }
+
+        /**
+         * @return An underlined version of this style
+         */
+        public Style underline() {
+            return with(UNDERLINE);
+        }
+
+        /**
+         * @return A version of this style with swapped foreground and background colors
+         */
+        public Style inverse() {
+            return with(INVERSE);
+        }
+
+        /**
+         * @param attributes A combination of {@link #BOLD}, {@link #ITALIC}, {@link #UNDERLINE} etc.
+         * @return A version of this style with the given attributes added
+         */
+        public Style with(int attributes) {
+            return new Style(this.attributes | checkAttributes(attributes), foreground, background);
+        }
+
+        /**
+         * @return The attributes as a combination of {@link #BOLD}, {@link #ITALIC}, {@link #UNDERLINE} etc.
+         */
+        public int attributes() {
+            return attributes;
+        }
+
+        /**
+         * @return The foreground color specification or {@link #DEFAULT_COLOR}
+         */
+        public int foreground() {
+            return foreground;
+        }
+
+        /**
+         * @return The background color specification or {@link #DEFAULT_COLOR}
+         */
+        public int background() {
+            return background;
+        }
+
+        /**
+         * Returns the combined escape sequence, which is built once per color depth on first use.
+         *
+         * @return ANSI escape sequence for this style, an empty String if nothing is set
+         */
+        public String sequence() {
+            if (DISABLED) {
+                return "";
+            }
+
+            return cachedSgr(sequences, attributes, foreground, background, colorDepth);
+        }
+
+        /**
+         * @return The same as {@link #sequence()}, so styles can be concatenated directly
+         */
+        @Override
+        public String toString() {
+            return sequence();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Style)) {
+                return false;
+            }
+            Style style = (Style) o;
+            return attributes == style.attributes && foreground == style.foreground && background == style.background;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * attributes + foreground) + background;
+        }
+    }
+
+    /**
+     * An immutable color that builds its escape sequences only once, created by the {@code Colors.color(...)}
+     * methods.
+     * <p>
+     * The color is validated when it is created and kept as a color specification like {@link #rgbColor(int)}
+     * returns it. The foreground and background sequences are built on first use per color depth and kept in the
+     * instance, so code that passes colors around never parses or formats them again. The 256 indexed colors are
+     * canonical instances. Colors can be shared between threads.
+     *
+     * <pre>{@code
+     *      Colors.Color warning = Colors.color("#ffcc00");
+     *      for (String line : lines) {
+     *          System.out.print(warning.fg() + line + Colors.reset());
+     *      }
+     * }</pre>
+     */
+    public static final class Color {
+        static final Color[] INDEXED = indexed();
+
+        private final int specification;
+        private final String[] fgSequences = new String[ColorDepth.values().length];
+        private final String[] bgSequences = new String[ColorDepth.values().length];
+
+        private Color(int specification) {
+            this.specification = specification;
+        }
+
+        private static Color[] indexed() {
+            Color[] colors = new Color[256];
+            for (int i = 0; i < colors.length; i++) {
+                colors[i] = new Color(INDEXED_COLOR | i);
+            }
+            return colors;
+        }
+
+        /**
+         * @return ANSI escape sequence that sets the foreground to this color
+         */
+        public String fg() {
+            if (DISABLED) {
+                return "";
+            }
+            return cachedSgr(fgSequences, 0, specification, DEFAULT_COLOR, colorDepth);
+        }
+
+        /**
+         * @return ANSI escape sequence that sets the background to this color
+         */
+        public String bg() {
+            if (DISABLED) {
+                return "";
+            }
+            return cachedSgr(bgSequences, 0, DEFAULT_COLOR, specification, colorDepth);
+        }
+
+        /**
+         * @return The color specification, to be used with {@link Colors#sgr(int, int, int)} or
+         * {@link AnsiStateWriter}
+         */
+        public int specification() {
+            return specification;
+        }
+
+        /**
+         * @return The color value in the form of 0xRRGGBB, indexed colors as they look in the xterm palette
+         */
+        public int rgb() {
+            int value = specification & COLOR_VALUE_MASK;
+            return (specification & COLOR_KIND_MASK) == INDEXED_COLOR ? XTERM_PALETTE[value] : value;
+        }
+
+        /**
+         * @return The same as {@link #fg()}, so colors can be concatenated directly
+         */
+        @Override
+        public String toString() {
+            return fg();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            return o instanceof Color && specification == ((Color) o).specification;
+        }
+
+        @Override
+        public int hashCode() {
+            return specification;
+        }
+    }
+
+    /**
+     * Writes styled text and only emits the escape sequences needed to get from the current style to the next one.
+     * <p>
+     * Rendering cells one after another with {@link Colors#fg(int)} and {@link Colors#bg(int)} repeats the
+     * sequences even if the colors did not change. This writer keeps track of the attributes and colors the terminal
+     * currently uses and writes nothing if a cell has the same style as the previous one. Otherwise it writes the
+     * shorter one of the changed parameters or a reset followed by the complete style.
+     *
+     * <pre>{@code
+     *      Colors.AnsiStateWriter writer = new Colors.AnsiStateWriter(line);
+     *      for (int x = 0; x < width; x++) {
+     *          writer.style(0, Colors.DEFAULT_COLOR, Colors.rgbColor(heat[x])).write(' ');
+     *      }
+     *      writer.reset();
+     * }</pre>
+     * <p>
+     * The writer assumes that the terminal starts with the default style and that nothing else writes escape
+     * sequences to the destination in between. Instances are not thread-safe.
+     */
+    public static final class AnsiStateWriter {
+        private static final String[] ATTRIBUTE_OFF_CODES = {"22", "22", "23", "24", "25", "27", "28", "29"};
+        private static final int BOLD_OR_FAINT = BOLD | FAINT;
+        private static final int MAX_LENGTH = 96;
+
+        private final Appendable out;
+        private final char[] delta = new char[MAX_LENGTH];
+        private final char[] full = new char[MAX_LENGTH];
+        private int attributes;
+        private int foreground = DEFAULT_COLOR;
+        private int background = DEFAULT_COLOR;
+
+        /**
+         * @param out A destination like a {@link StringBuilder} or {@link java.io.Writer}
+         */
+        public AnsiStateWriter(Appendable out) {
+            this.out = out;
+        }
+
+        /**
+         * Switches to the given style, writing only what changed.
+         *
+         * @param style The next style
+         * @return this writer
+         * @throws java.io.UncheckedIOException if the destination fails to append
+         */
+        public AnsiStateWriter style(Style style) {
+            return transition(style.attributes, style.foreground, style.background);
+        }
+
+        /**
+         * Switches to the given attributes and colors, writing only what changed.
+         * Unlike {@link Colors#sgr(int, int, int)}, {@link #DEFAULT_COLOR} switches back to the default color here.
+         *
+         * @param attributes A combination of {@link #BOLD}, {@link #ITALIC}, {@link #UNDERLINE} etc. or 0
+         * @param foreground A color specification or {@link #DEFAULT_COLOR}
+         * @param background A color specification or {@link #DEFAULT_COLOR}
+         * @return this writer
+         * @throws java.io.UncheckedIOException if the destination fails to append
+         */
+        public AnsiStateWriter style(int attributes, int foreground, int background) {
+            return transition(checkAttributes(attributes), checkColorSpecification(foreground),
+                    checkColorSpecification(background));
+        }
+
+        /**
+         * Writes text in the current style.
+         *
+         * @param text Text without escape sequences
+         * @return this writer
+         * @throws java.io.UncheckedIOException if the destination fails to append
+         */
+        public AnsiStateWriter write(CharSequence text) {
+            try {
+                out.append(text);
+            } catch (java.io.IOException e) {
+                throw new java.io.UncheckedIOException(e);
+            }
+            return this;
+        }
+
+        /**
+         * Writes a character in the current style.
+         *
+         * @param c A printable character
+         * @return this writer
+         * @throws java.io.UncheckedIOException if the destination fails to append
+         */
+        public AnsiStateWriter write(char c) {
+            try {
+                out.append(c);
+            } catch (java.io.IOException e) {
+                throw new java.io.UncheckedIOException(e);
+            }
+            return this;
+        }
+
+        /**
+         * Switches back to the default style, e.g. at the end of a line.
+         *
+         * @return this writer
+         * @throws java.io.UncheckedIOException if the destination fails to append
+         */
+        public AnsiStateWriter reset() {
+            return transition(0, DEFAULT_COLOR, DEFAULT_COLOR);
+        }
+
+        private AnsiStateWriter transition(int attributes, int foreground, int background) {
+            if (attributes == this.attributes && foreground == this.foreground && background == this.background) {
+                return this;
+            }
+
+            ColorDepth depth = colorDepth;
+            if (depth != ColorDepth.NONE) {
+                int deltaLength = writeDelta(attributes, foreground, background, depth);
+                int fullLength = writeFull(attributes, foreground, background, depth);
+                if (deltaLength <= fullLength) {
+                    append(out, delta, deltaLength);
+                } else {
+                    append(out, full, fullLength);
+                }
+            }
+
+            this.attributes = attributes;
+            this.foreground = foreground;
+            this.background = background;
+            return this;
+        }
+
+        /**
+         * Writes the parameters that change the current style into the next one.
+         *
+         * @return Length of the sequence
+         */
+        private int writeDelta(int attributes, int foreground, int background, ColorDepth depth) {
+            int removed = this.attributes & ~attributes;
+            int added = attributes & ~this.attributes;
+            if ((removed & BOLD_OR_FAINT) != 0) {
+                // SGR 22 turns off bold and faint, so a remaining one has to be set again
+                added |= attributes & BOLD_OR_FAINT;
+            }
+
+            int position = Colors.write(delta, 0, ANSI_SEQUENCE_START);
+            for (int i = 0; i < ATTRIBUTE_OFF_CODES.length; i++) {
+                int attribute = 1 << i;
+                // Faint shares the off code with bold, so it is written only once
+                if ((removed & attribute) != 0 && !(attribute == FAINT && (removed & BOLD) != 0)) {
+                    position = Colors.write(delta, position, ATTRIBUTE_OFF_CODES[i]);
+                    delta[position++] = ANSI_SEPARATOR;
+                }
+            }
+            for (int i = 0; i < ATTRIBUTE_CODES.length; i++) {
+                if ((added & (1 << i)) != 0) {
+                    delta[position++] = ATTRIBUTE_CODES[i];
+                    delta[position++] = ANSI_SEPARATOR;
+                }
+            }
+            if (foreground != this.foreground) {
+                position = foreground == DEFAULT_COLOR
+                        ? Colors.write(delta, position, "39")
+                        : writeColorParameters(delta, position, ANSI_FOREGROUND, foreground, depth);
+                delta[position++] = ANSI_SEPARATOR;
+            }
+            if (background != this.background) {
+                position = background == DEFAULT_COLOR
+                        ? Colors.write(delta, position, "49")
+                        : writeColorParameters(delta, position, ANSI_BACKGROUND, background, depth);
+                delta[position++] = ANSI_SEPARATOR;
+            }
+            delta[position - 1] = ANSI_SEQUENCE_END;
+            return position;
+        }
+
+        /**
+         * Writes a reset followed by the complete next style.
+         *
+         * @return Length of the sequence
+         */
+        private int writeFull(int attributes, int foreground, int background, ColorDepth depth) {
+            int length = writeSgr(full, attributes, foreground, background, depth);
+            if (length == 0) {
+                return Colors.write(full, 0, ANSI_ESCAPE_SEQUENCE + "[0m");
+            }
+            // Insert the reset parameter after ESC[
+            int start = ANSI_SEQUENCE_START.length();
+            System.arraycopy(full, start, full, start + 2, length - start);
+            full[start] = '0';
+            full[start + 1] = ANSI_SEPARATOR;
+            return length + 2;
+        }
+    }
+
+    /**
+     * Removes ANSI escape sequences from text or bytes that arrive in pieces, like a log stream.
+     * <p>
+     * A hand-written state machine that understands the shapes of ECMA-48: CSI sequences like {@code ESC[1;38;5;220m}
+     * or {@code ESC[2J}, OSC sequences like terminal titles or hyperlinks ending with BEL or {@code ESC\}, other
+     * control strings (DCS, SOS, PM, APC) and short escapes like {@code ESC7} or {@code ESC(B}. A sequence may be
+     * split across calls, the stripper remembers where it stopped. Everything else, including line breaks and tabs,
+     * is kept.
+     *
+     * <pre>{@code
+     *      Colors.AnsiStripper stripper = new Colors.AnsiStripper();
+     *      int n;
+     *      while ((n = in.read(buffer)) > 0) {
+     *          out.write(buffer, 0, stripper.strip(buffer, 0, n, buffer, 0));
+     *      }
+     * }</pre>
+     * <p>
+     * Bytes are expected in UTF-8 or another ASCII compatible encoding. Only 7-bit escapes are recognized, as the
+     * 8-bit C1 controls are continuation bytes in UTF-8. Instances are not thread-safe.
+     */
+    public static final class AnsiStripper {
+        static final char ESC = '\u001B';
+        private static final int BEL = 0x07;
+        private static final int CAN = 0x18;
+        private static final int SUB = 0x1A;
+
+        private static final int GROUND = 0;
+        private static final int ESCAPE = 1;
+        private static final int ESCAPE_INTERMEDIATE = 2;
+        private static final int CSI = 3;
+        private static final int STRING = 4;
+        private static final int STRING_ESCAPE = 5;
+
+        private final SgrParser parser;
+        private int state = GROUND;
+        /** Number of characters or bytes kept so far, positions of the spans reported by {@link SgrParser} */
+        private long kept;
+
+        /**
+         * Creates a stripper that starts outside of any escape sequence.
+         */
+        public AnsiStripper() {
+            this(null);
+        }
+
+        /**
+         * @param parser Receives the parameters and finals of CSI sequences, or null
+         */
+        private AnsiStripper(SgrParser parser) {
+            this.parser = parser;
+        }
+
+        /**
+         * Copies the text without escape sequences to the destination.
+         *
+         * @param text The next piece of text
+         * @param out  A destination like a {@link StringBuilder} or {@link java.io.Writer}
+         * @return the given destination
+         * @throws java.io.UncheckedIOException if the destination fails to append
+         */
+        public <A extends Appendable> A strip(CharSequence text, A out) {
+            try {
+                int length = text.length();
+                int i = 0;
+                while (i < length) {
+                    if (state == GROUND) {
+                        // Copy everything up to the next escape at once
+                        int start = i;
+                        while (i < length && text.charAt(i) != ESC) {
+                            i++;
+                        }
+                        if (i > start) {
+                            out.append(text, start, i);
+                            kept += i - start;
+                        }
+                        if (i == length) {
+                            break;
+                        }
+                    }
+                    char c = text.charAt(i++);
+                    if (accept(c)) {
+                        out.append(c);
+                        kept++;
+                    }
+                }
+            } catch (java.io.IOException e) {
+                throw new java.io.UncheckedIOException(e);
+            }
+            return out;
+        }
+
+        /**
+         * Copies the characters without escape sequences to the destination, which may be the source itself.
+         *
+         * @param src       Source
+         * @param offset    Position of the first character in the source
+         * @param length    Number of characters to read
+         * @param dst       Destination with room for {@code length} characters
+         * @param dstOffset Position of the first character in the destination, at most {@code offset} when the
+         *                  source is stripped in place
+         * @return Number of characters written
+         */
+        public int strip(char[] src, int offset, int length, char[] dst, int dstOffset) {
+            int j = dstOffset;
+            int i = offset;
+            int end = offset + length;
+            while (i < end) {
+                if (state == GROUND) {
+                    // Copy everything up to the next escape at once
+                    int start = i;
+                    while (i < end && src[i] != ESC) {
+                        i++;
+                    }
+                    System.arraycopy(src, start, dst, j, i - start);
+                    j += i - start;
+                    kept += i - start;
+                    if (i == end) {
+                        break;
+                    }
+                }
+                char c = src[i++];
+                if (accept(c)) {
+                    dst[j++] = c;
+                    kept++;
+                }
+            }
+            return j - dstOffset;
+        }
+
+        /**
+         * Copies the bytes without escape sequences to the destination, which may be the source itself.
+         *
+         * @param src       Source in UTF-8 or another ASCII compatible encoding
+         * @param offset    Position of the first byte in the source
+         * @param length    Number of bytes to read
+         * @param dst       Destination with room for {@code length} bytes
+         * @param dstOffset Position of the first byte in the destination, at most {@code offset} when the source is
+         *                  stripped in place
+         * @return Number of bytes written
+         */
+        public int strip(byte[] src, int offset, int length, byte[] dst, int dstOffset) {
+            int j = dstOffset;
+            int i = offset;
+            int end = offset + length;
+            while (i < end) {
+                if (state == GROUND) {
+                    // Copy everything up to the next escape at once
+                    int start = i;
+                    while (i < end && src[i] != ESC) {
+                        i++;
+                    }
+                    System.arraycopy(src, start, dst, j, i - start);
+                    j += i - start;
+                    kept += i - start;
+                    if (i == end) {
+                        break;
+                    }
+                }
+                byte b = src[i++];
+                if (accept(b & 0xFF)) {
+                    dst[j++] = b;
+                    kept++;
+                }
+            }
+            return j - dstOffset;
+        }
+
+        /**
+         * Copies the bytes without escape sequences from one buffer to another.
+         * Reads until the source is exhausted or the destination is full, so it can be called again with the rest.
+         *
+         * @param src Source in UTF-8 or another ASCII compatible encoding, read from its position
+         * @param dst Destination, written at its position
+         * @return Number of bytes written
+         */
+        public int strip(java.nio.ByteBuffer src, java.nio.ByteBuffer dst) {
+            if (src.hasArray() && dst.hasArray() && !dst.isReadOnly()) {
+                // Output is never longer than input, so only read as much as surely fits
+                int length = Math.min(src.remaining(), dst.remaining());
+                int written = strip(src.array(), src.arrayOffset() + src.position(), length,
+                        dst.array(), dst.arrayOffset() + dst.position());
+                src.position(src.position() + length);
+                dst.position(dst.position() + written);
+                return written;
+            }
+
+            int written = 0;
+            while (src.hasRemaining()) {
+                byte b = src.get(src.position());
+                int previous = state;
+                if ((state == GROUND && b != ESC) || accept(b & 0xFF)) {
+                    if (!dst.hasRemaining()) {
+                        // Read the byte again on the next call
+                        state = previous;
+                        break;
+                    }
+                    dst.put(b);
+                    written++;
+                    kept++;
+                }
+                src.position(src.position() + 1);
+            }
+            return written;
+        }
+
+        /**
+         * @return Whether the input so far ended in the middle of an escape sequence
+         */
+        public boolean inSequence() {
+            return state != GROUND;
+        }
+
+        /**
+         * Forgets a partially read escape sequence, e.g. before stripping an unrelated stream.
+         */
+        public void reset() {
+            state = GROUND;
+            kept = 0;
+        }
+
+        /**
+         * Advances the state machine by one character.
+         *
+         * @param c The next character or byte
+         * @return Whether the character is text to be kept
+         */
+        private boolean accept(int c) {
+            switch (state) {
+                case GROUND:
+                    if (c == ESC) {
+                        state = ESCAPE;
+                        return false;
+                    }
+                    return true;
+                case ESCAPE:
+                    if (c == '[') {
+                        state = CSI;
+                        if (parser != null) {
+                            parser.startSequence();
+                        }
+                    } else if (c == ']' || c == 'P' || c == 'X' || c == '^' || c == '_') {
+                        state = STRING;
+                    } else if (c >= 0x20 && c <= 0x2F) {
+                        state = ESCAPE_INTERMEDIATE;
+                    } else if (c != ESC) {
+                        return end(c);
+                    }
+                    return false;
+                case ESCAPE_INTERMEDIATE:
+                    if (c >= 0x20 && c <= 0x2F) {
+                        return false;
+                    }
+                    return end(c);
+                case CSI:
+                    if (c >= 0x40 && c <= 0x7E) {
+                        state = GROUND;
+                        if (parser != null) {
+                            parser.endSequence(c);
+                        }
+                    } else if (c >= 0x20 && c <= 0x3F) {
+                        if (parser != null) {
+                            parser.parameter(c);
+                        }
+                    } else if (c == ESC) {
+                        state = ESCAPE;
+                    } else if (c == CAN || c == SUB) {
+                        state = GROUND;
+                    } else if (c < 0x20) {
+                        // Terminals execute other controls in the middle of a sequence
+                        return true;
+                    }
+                    return false;
+                case STRING:
+                    if (c == BEL || c == CAN || c == SUB) {
+                        state = GROUND;
+                    } else if (c == ESC) {
+                        state = STRING_ESCAPE;
+                    }
+                    return false;
+                default:
+                    if (c == '\\') {
+                        state = GROUND;
+                        return false;
+                    }
+                    // Any other escape ends the string and starts a new sequence
+                    state = ESCAPE;
+                    return accept(c);
+            }
+        }
+
+        /**
+         * Ends a short escape sequence.
+         *
+         * @param c The character after the escape and its intermediates
+         * @return Whether the character is text to be kept
+         */
+        private boolean end(int c) {
+            state = GROUND;
+            // Finals end the sequence, controls are executed and anything else is text again
+            return !(c >= 0x30 && c <= 0x7E) && c != CAN && c != SUB;
+        }
+
+        /**
+         * Finds the end of a complete escape sequence with the same rules as the state machine, but without an
+         * instance. Controls in the middle of a CSI sequence are skipped with it.
+         *
+         * @param text  Text with an escape at {@code start}
+         * @param start Position of the escape
+         * @return Position of the first character after the sequence, the length of the text if it is unfinished
+         */
+        static int skip(CharSequence text, int start) {
+            int length = text.length();
+            int i = start + 1;
+            if (i == length) {
+                return length;
+            }
+            char c = text.charAt(i++);
+            if (c == '[') {
+                while (i < length) {
+                    c = text.charAt(i++);
+                    if ((c >= 0x40 && c <= 0x7E) || c == CAN || c == SUB) {
+                        return i;
+                    } else if (c == ESC) {
+                        return i - 1;
+                    }
+                }
+                return length;
+            }
+            if (c == ']' || c == 'P' || c == 'X' || c == '^' || c == '_') {
+                while (i < length) {
+                    c = text.charAt(i++);
+                    if (c == BEL || c == CAN || c == SUB) {
+                        return i;
+                    } else if (c == ESC) {
+                        return i < length && text.charAt(i) == '\\' ? i + 1 : i - 1;
+                    }
+                }
+                return length;
+            }
+            while (c >= 0x20 && c <= 0x2F) {
+                if (i == length) {
+                    return length;
+                }
+                c = text.charAt(i++);
+            }
+            return (c >= 0x30 && c <= 0x7E) || c == CAN || c == SUB ? i : i - 1;
+        }
+    }
+
+    /**
+     * Decodes the SGR sequences in text or bytes back into attributes and colors, the inverse of
+     * {@link Colors#sgr(int, int, int)}.
+     * <p>
+     * The escape sequences are removed like with {@link AnsiStripper}, and the remaining text is reported to a
+     * {@link SpanListener} as spans: ranges of the stripped text that share the same attributes and colors. Colors use
+     * the specifications of {@link Colors#indexedColor(int)} and {@link Colors#rgbColor(int)}, the basic colors
+     * 30 - 37 and 90 - 97 are reported as indexed colors 0 - 15.
+     *
+     * <pre>{@code
+     *      Colors.SgrParser parser = new Colors.SgrParser((start, end, attributes, foreground, background) ->
+     *              html.span(start, end, attributes, foreground, background));
+     *      int n;
+     *      while ((n = in.read(buffer)) > 0) {
+     *          text.write(buffer, 0, parser.parse(buffer, 0, n, buffer, 0));
+     *      }
+     *      parser.flush();
+     * }</pre>
+     * <p>
+     * Like the stripper, the parser keeps its state between calls, so a sequence may be split across buffers. It
+     * does not allocate while parsing. Instances are not thread-safe.
+     */
+    public static final class SgrParser {
+        private static final int MAX_PARAMETERS = 32;
+        private static final int MAX_PARAMETER = 65535;
+
+        private final SpanListener listener;
+        private final AnsiStripper stripper = new AnsiStripper(this);
+        private final int[] parameters = new int[MAX_PARAMETERS];
+        private int count;
+        private boolean ignored;
+        private int attributes;
+        private int foreground = DEFAULT_COLOR;
+        private int background = DEFAULT_COLOR;
+        private long spanStart;
+
+        /**
+         * Receives the spans of text that share the same attributes and colors.
+         */
+        public interface SpanListener {
+            /**
+             * Called for every non-empty span, in order and without gaps. Unstyled text is reported as well, with
+             * no attributes and {@link #DEFAULT_COLOR}.
+             *
+             * @param start      Position of the first character or byte in the stripped text
+             * @param end        Position after the last character or byte in the stripped text
+             * @param attributes A combination of {@link #BOLD}, {@link #ITALIC}, {@link #UNDERLINE} etc. or 0
+             * @param foreground A color specification or {@link #DEFAULT_COLOR}
+             * @param background A color specification or {@link #DEFAULT_COLOR}
+             */
+            void span(long start, long end, int attributes, int foreground, int background);
+        }
+
+        /**
+         * @param listener Receives the spans
+         */
+        public SgrParser(SpanListener listener) {
+            if (listener == null) {
+                throw new IllegalArgumentException("Listener must not be null");
+            }
+            this.listener = listener;
+        }
+
+        /**
+         * Copies the text without escape sequences to the destination and reports the spans that ended.
+         *
+         * @param text The next piece of text
+         * @param out  A destination like a {@link StringBuilder} or {@link java.io.Writer}
+         * @return the given destination
+         * @throws java.io.UncheckedIOException if the destination fails to append
+         * @see AnsiStripper#strip(CharSequence, Appendable)
+         */
+        public <A extends Appendable> A parse(CharSequence text, A out) {
+            return stripper.strip(text, out);
+        }
+
+        /**
+         * Copies the characters without escape sequences to the destination and reports the spans that ended.
+         *
+         * @return Number of characters written
+         * @see AnsiStripper#strip(char[], int, int, char[], int)
+         */
+        public int parse(char[] src, int offset, int length, char[] dst, int dstOffset) {
+            return stripper.strip(src, offset, length, dst, dstOffset);
+        }
+
+        /**
+         * Copies the bytes without escape sequences to the destination and reports the spans that ended.
+         *
+         * @return Number of bytes written
+         * @see AnsiStripper#strip(byte[], int, int, byte[], int)
+         */
+        public int parse(byte[] src, int offset, int length, byte[] dst, int dstOffset) {
+            return stripper.strip(src, offset, length, dst, dstOffset);
+        }
+
+        /**
+         * Reports the text since the last span in the current style, e.g. at the end of the input.
+         * Text that follows in the same style is reported as a new span.
+         */
+        public void flush() {
+            long end = stripper.kept;
+            if (end > spanStart) {
+                listener.span(spanStart, end, attributes, foreground, background);
+                spanStart = end;
+            }
+        }
+
+        /**
+         * Starts over at position 0 with the default style, without reporting anything.
+         */
+        public void reset() {
+            stripper.reset();
+            attributes = 0;
+            foreground = DEFAULT_COLOR;
+            background = DEFAULT_COLOR;
+            spanStart = 0;
+        }
+
+        /**
+         * @return The current attributes
+         */
+        public int attributes() {
+            return attributes;
+        }
+
+        /**
+         * @return The current foreground color specification or {@link #DEFAULT_COLOR}
+         */
+        public int foreground() {
+            return foreground;
+        }
+
+        /**
+         * @return The current background color specification or {@link #DEFAULT_COLOR}
+         */
+        public int background() {
+            return background;
+        }
+
+        void startSequence() {
+            count = 0;
+            parameters[0] = 0;
+            ignored = false;
+        }
+
+        void parameter(int c) {
+            if (c >= '0' && c <= '9') {
+                parameters[count] = Math.min(parameters[count] * 10 + c - '0', MAX_PARAMETER);
+            } else if (c == ';') {
+                if (count < MAX_PARAMETERS - 1) {
+                    parameters[++count] = 0;
+                } else {
+                    // Digits after a dropped separator would run into the last parameter and change its meaning
+                    ignored = true;
+                }
+            } else {
+                // Private markers, intermediates and colon separated sub-parameters are no plain SGR
+                ignored = true;
+            }
+        }
+
+        void endSequence(int c) {
+            if (c != ANSI_SEQUENCE_END || ignored) {
+                return;
+            }
+
+            int attributes = this.attributes;
+            int foreground = this.foreground;
+            int background = this.background;
+            int length = count + 1;
+            for (int i = 0; i < length; i++) {
+                int parameter = parameters[i];
+                if (parameter == 0) {
+                    attributes = 0;
+                    foreground = DEFAULT_COLOR;
+                    background = DEFAULT_COLOR;
+                } else if (parameter <= 9) {
+                    attributes |= attribute(parameter);
+                } else if (parameter == 22) {
+                    attributes &= ~(BOLD | FAINT);
+                } else if (parameter >= 23 && parameter <= 29 && parameter != 26) {
+                    attributes &= ~attribute(parameter - 20);
+                } else if (parameter >= 30 && parameter <= 37) {
+                    foreground = INDEXED_COLOR | (parameter - 30);
+                } else if (parameter >= 90 && parameter <= 97) {
+                    foreground = INDEXED_COLOR | (parameter - 90 + 8);
+                } else if (parameter == 39) {
+                    foreground = DEFAULT_COLOR;
+                } else if (parameter >= 40 && parameter <= 47) {
+                    background = INDEXED_COLOR | (parameter - 40);
+                } else if (parameter >= 100 && parameter <= 107) {
+                    background = INDEXED_COLOR | (parameter - 100 + 8);
+                } else if (parameter == 49) {
+                    background = DEFAULT_COLOR;
+                } else if (parameter == 38 || parameter == 48) {
+                    int color = extendedColor(i + 1, length);
+                    if (color < 0) {
+                        // Without knowing how many parameters the color takes, the rest cannot be interpreted
+                        break;
+                    }
+                    if (parameter == 38) {
+                        foreground = color;
+                    } else {
+                        background = color;
+                    }
+                    i += parameters[i + 1] == 5 ? 2 : 4;
+                }
+            }
+
+            if (attributes != this.attributes || foreground != this.foreground || background != this.background) {
+                flush();
+                this.attributes = attributes;
+                this.foreground = foreground;
+                this.background = background;
+            }
+        }
+
+        /**
+         * @param parameter An SGR parameter between 1 and 9
+         * @return The attribute it sets, 0 for unsupported ones
+         */
+        private static int attribute(int parameter) {
+            switch (parameter) {
+                case 1:
+                    return BOLD;
+                case 2:
+                    return FAINT;
+                case 3:
+                    return ITALIC;
+                case 4:
+                    return UNDERLINE;
+                case 5:
+                case 6:
+                    return BLINK;
+                case 7:
+                    return INVERSE;
+                case 8:
+                    return HIDDEN;
+                case 9:
+                    return STRIKETHROUGH;
+                default:
+                    return 0;
+            }
+        }
+
+        /**
+         * Decodes the color after 38 or 48, either {@code 5;index} or {@code 2;red;green;blue}.
+         *
+         * @param from   Position of the color mode
+         * @param length Number of parameters
+         * @return The color specification, -1 if it is incomplete or out of range
+         */
+        private int extendedColor(int from, int length) {
+            if (from < length && parameters[from] == 5 && from + 1 < length && parameters[from + 1] <= 255) {
+                return INDEXED_COLOR | parameters[from + 1];
+            }
+            if (from < length && parameters[from] == 2 && from + 3 < length) {
+                int red = parameters[from + 1];
+                int green = parameters[from + 2];
+                int blue = parameters[from + 3];
+                if (red <= 255 && green <= 255 && blue <= 255) {
+                    return RGB_COLOR | (red << 16) | (green << 8) | blue;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * A {@link java.util.logging.Formatter} that writes one line per record with a colored level.
+     *
+     * <pre>{@code
+     *      2026-10-18 14:03:07.123 WARNING com.example.Service: Disk almost full
+     * }</pre>
+     * <p>
+     * The colored level names are built once per color depth when the formatter is created, and every thread reuses
+     * its own buffer, so formatting a record costs about as much as copying its message. When colors are turned off,
+     * the plain level names are written without any escape sequences. Note that the color depth is detected for
+     * standard output, while a {@code ConsoleHandler} writes to standard error, so redirecting only standard error
+     * needs {@code NO_COLOR} or {@link Colors#setColorDepth(ColorDepth)}. The timestamp uses the default time zone at
+     * the time the formatter is created. Exceptions follow the line with their stack trace.
+     * <p>
+     * To use it for all console output, add this to your {@code logging.properties}:
+     *
+     * <pre>{@code
+     *      java.util.logging.ConsoleHandler.formatter = Colors$ColorFormatter
+     * }</pre>
+     */
+    public static final class ColorFormatter extends java.util.logging.Formatter {
+        private static final java.util.logging.Level[] LEVELS = {
+                java.util.logging.Level.SEVERE, java.util.logging.Level.WARNING, java.util.logging.Level.INFO,
+                java.util.logging.Level.CONFIG, java.util.logging.Level.FINE, java.util.logging.Level.FINER,
+                java.util.logging.Level.FINEST
+        };
+        private static final Style[] DEFAULT_STYLES = {
+                Colors.style(BOLD, indexedColor(9), DEFAULT_COLOR), Colors.style(0, indexedColor(11), DEFAULT_COLOR),
+                Colors.style(0, indexedColor(2), DEFAULT_COLOR), Colors.style(0, indexedColor(6), DEFAULT_COLOR),
+                Colors.style(0, indexedColor(8), DEFAULT_COLOR), Colors.style(0, indexedColor(8), DEFAULT_COLOR),
+                Colors.style(0, indexedColor(8), DEFAULT_COLOR)
+        };
+        private static final String LINE_SEPARATOR = System.lineSeparator();
+        /** Buffers that grew larger than this for a huge message are dropped instead of being kept forever */
+        private static final int MAX_BUFFER_LENGTH = 8192;
+        private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+        private final Style[] styles;
+        private final int width;
+        /** Colored and padded level names by color depth and level */
+        private final String[][] labels;
+        private final java.util.TimeZone zone = java.util.TimeZone.getDefault();
+
+        /**
+         * Creates a formatter with bold red for {@code SEVERE}, yellow for {@code WARNING}, green for {@code INFO},
+         * cyan for {@code CONFIG} and grey for the finer levels.
+         */
+        public ColorFormatter() {
+            this(DEFAULT_STYLES);
+        }
+
+        private ColorFormatter(Style[] styles) {
+            this.styles = styles;
+            int width = 0;
+            for (java.util.logging.Level level : LEVELS) {
+                width = Math.max(width, level.getLocalizedName().length());
+            }
+            this.width = width;
+
+            ColorDepth[] depths = ColorDepth.values();
+            labels = new String[depths.length][LEVELS.length];
+            char[] buffer = new char[MAX_SGR_LENGTH];
+            for (ColorDepth depth : depths) {
+                for (int i = 0; i < LEVELS.length; i++) {
+                    StringBuilder label = new StringBuilder();
+                    int length = writeSgr(buffer, styles[i].attributes(), styles[i].foreground(),
+                            styles[i].background(), depth);
+                    label.append(buffer, 0, length);
+                    appendName(label, LEVELS[i].getLocalizedName(), length > 0);
+                    labels[depth.ordinal()][i] = label.toString();
+                }
+            }
+        }
+
+        /**
+         * @param level One of the standard levels from {@code SEVERE} to {@code FINEST}
+         * @param style The style of the level name
+         * @return A formatter that writes the level in the given style, other levels keep theirs
+         */
+        public ColorFormatter withStyle(java.util.logging.Level level, Style style) {
+            if (style == null) {
+                throw new IllegalArgumentException("Style must not be null");
+            }
+            for (int i = 0; i < LEVELS.length; i++) {
+                if (LEVELS[i].equals(level)) {
+                    Style[] changed = styles.clone();
+                    changed[i] = style;
+                    return new ColorFormatter(changed);
+                }
+            }
+            throw new IllegalArgumentException("Level must be one of SEVERE, WARNING, INFO, CONFIG, FINE, FINER or FINEST");
+        }
+
+        @Override
+        public String format(java.util.logging.LogRecord record) {
+            // Everything that may log itself happens before the buffer of this thread is taken
+            String message = formatMessage(record);
+            String thrown = record.getThrown() == null ? null : stackTrace(record.getThrown());
+
+            StringBuilder out = BUFFER.get();
+            out.setLength(0);
+            appendTimestamp(out, record.getMillis());
+            out.append(' ');
+            appendLevel(out, record.getLevel());
+            out.append(' ');
+            if (record.getLoggerName() != null) {
+                out.append(record.getLoggerName()).append(": ");
+            }
+            out.append(message).append(LINE_SEPARATOR);
+            if (thrown != null) {
+                out.append(thrown);
+            }
+
+            String result = out.toString();
+            if (out.capacity() > MAX_BUFFER_LENGTH) {
+                BUFFER.remove();
+            }
+            return result;
+        }
+
+        private void appendLevel(StringBuilder out, java.util.logging.Level level) {
+            int depth = DISABLED ? ColorDepth.NONE.ordinal() : colorDepth.ordinal();
+            for (int i = 0; i < LEVELS.length; i++) {
+                if (LEVELS[i] == level) {
+                    out.append(labels[depth][i]);
+                    return;
+                }
+            }
+
+            // Custom levels get the style of the next standard level below them
+            int i = 0;
+            while (i < LEVELS.length - 1 && level.intValue() < LEVELS[i].intValue()) {
+                i++;
+            }
+            Style style = styles[i];
+            int start = out.length();
+            out.append(DISABLED ? "" : style.sequence());
+            appendName(out, level.getLocalizedName(), out.length() > start);
+        }
+
+        private void appendName(StringBuilder out, String name, boolean colored) {
+            out.append(name);
+            if (colored) {
+                out.append(ANSI_ESCAPE_SEQUENCE).append("[0m");
+            }
+            for (int i = name.length(); i < width; i++) {
+                out.append(' ');
+            }
+        }
+
+        private void appendTimestamp(StringBuilder out, long millis) {
+            long local = millis + zone.getOffset(millis);
+            long days = Math.floorDiv(local, 86400000L);
+            int time = (int) Math.floorMod(local, 86400000L);
+
+            // Civil date from days since 1970-01-01, see https://howardhinnant.github.io/date_algorithms.html
+            long z = days + 719468;
+            long era = Math.floorDiv(z, 146097);
+            int dayOfEra = (int) (z - era * 146097);
+            int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+            int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+            int shiftedMonth = (5 * dayOfYear + 2) / 153;
+            int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+            int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+            long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+            if (year >= 0 && year <= 9999) {
+                appendDigits(out, (int) year, 4);
+            } else {
+                out.append(year);
+            }
+            appendDigits(out.append('-'), month, 2);
+            appendDigits(out.append('-'), day, 2);
+            appendDigits(out.append(' '), time / 3600000, 2);
+            appendDigits(out.append(':'), time / 60000 % 60, 2);
+            appendDigits(out.append(':'), time / 1000 % 60, 2);
+            appendDigits(out.append('.'), time % 1000, 3);
+        }
+
+        private static void appendDigits(StringBuilder out, int value, int digits) {
+            for (int divisor = digits == 4 ? 1000 : digits == 3 ? 100 : 10; divisor > 0; divisor /= 10) {
+                out.append((char) ('0' + value / divisor % 10));
+            }
+        }
+
+        private static String stackTrace(Throwable thrown) {
+            java.io.StringWriter trace = new java.io.StringWriter();
+            try (java.io.PrintWriter writer = new java.io.PrintWriter(trace)) {
+                thrown.printStackTrace(writer);
+            }
+            return trace.toString();
+        }
+    }
+
+    /**
+     * Renders a range of chunks of {@link #halfBlocks(int[], int, int)}, splitting it in halves until a single chunk
+     * is left.
+     * <p>
+     * Every chunk of lines gets its own buffer and {@link AnsiStateWriter}. As each line ends with a reset, a chunk
+     * does not depend on the one before and the chunks can simply be concatenated.
+     */
+    private static final class HalfBlocks extends java.util.concurrent.RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        static final int CHUNK_LINES = 4;
+        private static final char UPPER_HALF = '\u2580';
+        private static final char LOWER_HALF = '\u2584';
+        private static final int OPAQUE = 0x80000000;
+
+        private final int[] argb;
+        private final int width;
+        private final int height;
+        private final StringBuilder[] chunks;
+        private final int from;
+        private final int to;
+
+        HalfBlocks(int[] argb, int width, int height, StringBuilder[] chunks, int from, int to) {
+            this.argb = argb;
+            this.width = width;
+            this.height = height;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new HalfBlocks(argb, width, height, chunks, from, middle),
+                        new HalfBlocks(argb, width, height, chunks, middle, to));
+                return;
+            }
+
+            StringBuilder chunk = new StringBuilder(width * CHUNK_LINES * 8);
+            AnsiStateWriter writer = new AnsiStateWriter(chunk);
+            int lastLine = Math.min((from + 1) * CHUNK_LINES, (height + 1) / 2);
+            for (int line = from * CHUNK_LINES; line < lastLine; line++) {
+                renderLine(writer, line);
+            }
+            chunks[from] = chunk;
+        }
+
+        private void renderLine(AnsiStateWriter writer, int line) {
+            int upperRow = line * 2 * width;
+            boolean hasLowerRow = line * 2 + 1 < height;
+            // Spaces do not show the foreground, so they keep the current one instead of switching it
+            int foreground = DEFAULT_COLOR;
+            for (int x = 0; x < width; x++) {
+                int upper = argb[upperRow + x];
+                int lower = hasLowerRow ? argb[upperRow + width + x] : 0;
+                boolean upperOpaque = (upper & OPAQUE) != 0;
+                boolean lowerOpaque = (lower & OPAQUE) != 0;
+                if (upperOpaque && lowerOpaque) {
+                    if (((upper ^ lower) & COLOR_VALUE_MASK) == 0) {
+                        writer.transition(0, foreground, RGB_COLOR | (lower & COLOR_VALUE_MASK)).write(' ');
+                    } else {
+                        foreground = RGB_COLOR | (upper & COLOR_VALUE_MASK);
+                        writer.transition(0, foreground, RGB_COLOR | (lower & COLOR_VALUE_MASK)).write(UPPER_HALF);
+                    }
+                } else if (upperOpaque) {
+                    foreground = RGB_COLOR | (upper & COLOR_VALUE_MASK);
+                    writer.transition(0, foreground, DEFAULT_COLOR).write(UPPER_HALF);
+                } else if (lowerOpaque) {
+                    foreground = RGB_COLOR | (lower & COLOR_VALUE_MASK);
+                    writer.transition(0, foreground, DEFAULT_COLOR).write(LOWER_HALF);
+                } else {
+                    writer.transition(0, foreground, DEFAULT_COLOR).write(' ');
+                }
+            }
+            writer.reset().write('\n');
+        }
+    }
+
+    /**
+     * The color depth a terminal supports, see {@link Colors#setColorDepth(ColorDepth)}.
+     */
+    public enum ColorDepth {
+        /** No colors at all, every method returns an empty String, e.g. when the output is redirected to a file */
+        NONE,
+        /** The 16 basic colors, all colors are sent as the nearest one like {@code ESC[33m} or {@code ESC[93m} */
+        BASIC_16,
+        /** 256 indexed colors, RGB colors are sent as the nearest palette entry like {@code ESC[38;5;220m} */
+        INDEXED_256,
+        /** 24-bit colors, RGB colors are sent as they are like {@code ESC[38;2;255;204;0m} */
+        TRUECOLOR
+    }
+
+    /**
+     * The color space a gradient is interpolated in, see {@link Colors#gradient(int, int, int, ColorSpace)}.
+     */
+    public enum ColorSpace {
+        /** Straight lines between the red, green and blue components, may look muddy in the middle */
+        RGB,
+        /** Around the hue circle the short way, keeps colors saturated like a rainbow */
+        HSV,
+        /** Straight lines in the perceptual OKLab color space, steps look evenly spaced */
+        OKLAB
+    }
+
+    /**
+     * Holds the recently requested gradients, which are only cached when gradients are used.
+     * <p>
+     * A small access-ordered map evicts the least recently used gradient. Gradients are computed outside the lock,
+     * so at worst the same gradient is computed twice.
+     */
+    private static final class Gradients {
+        static final int MAX_STEPS = 4096;
+        private static final int CAPACITY = 64;
+        private static final java.util.LinkedHashMap<Key, Object> CACHE =
+                new java.util.LinkedHashMap<Key, Object>(CAPACITY * 2, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(java.util.Map.Entry<Key, Object> eldest) {
+                        return size() > CAPACITY;
+                    }
+                };
+
+        static Object get(Key key) {
+            synchronized (CACHE) {
+                return CACHE.get(key);
+            }
+        }
+
+        static void put(Key key, Object gradient) {
+            synchronized (CACHE) {
+                CACHE.put(key, gradient);
+            }
+        }
+
+        /**
+         * Identifies a gradient of color values, or of sequences for a level and color depth.
+         */
+        static final class Key {
+            private final int from;
+            private final int to;
+            private final int steps;
+            private final ColorSpace space;
+            private final String level;
+            private final ColorDepth depth;
+
+            Key(int from, int to, int steps, ColorSpace space, String level, ColorDepth depth) {
+                this.from = from;
+                this.to = to;
+                this.steps = steps;
+                this.space = space;
+                this.level = level;
+                this.depth = depth;
+            }
+
+            @Override
+            public boolean equals(Object o) {
+                if (!(o instanceof Key)) {
+                    return false;
+                }
+                Key key = (Key) o;
+                return from == key.from && to == key.to && steps == key.steps && space == key.space
+                        && level == key.level && depth == key.depth;
+            }
+
+            @Override
+            public int hashCode() {
+                int hash = 31 * (31 * from + to) + steps;
+                hash = 31 * hash + (space == null ? 0 : space.ordinal());
+                hash = 31 * hash + (level == null ? 0 : level.hashCode());
+                return 31 * hash + (depth == null ? 0 : depth.ordinal());
+            }
+        }
+    }
+
+    /**
+     * Holds the k-d tree and the result table for the perceptually nearest 256 color palette entry,
+     * which are only built when needed.
+     */
+    private static final class PerceptualPalette256 {
+        static final OklabTree TREE = new OklabTree(XTERM_PALETTE, 16, 256);
+        static final byte[] CACHE = new byte[1 << 24];
+    }
+
+    /**
+     * Holds the lookup table for the nearest of the 16 basic colors, which is only built when needed.
+     */
+    private static final class Palette16 {
+        static final NearestColorTable NEAREST = new NearestColorTable(XTERM_PALETTE, 0, 16);
+    }
+
+    /**
+     * Column widths of all code points in a two-stage table, which is only built when needed.
+     * <p>
+     * Code points are split into blocks of 256. Most blocks look the same, e.g. all of them just narrow or all wide,
+     * so identical blocks are stored once and the first stage maps every block to its stored copy. Both kinds of
+     * ranges are taken from Unicode 15.0, so the widths do not depend on the version of the JDK: wide are the East
+     * Asian Width properties W and F, zero-width the general categories Mn, Me, Cf except the soft hyphen U+00AD,
+     * Cc and the Hangul Jamo vowels and final consonants that combine with the consonant before them.
+     */
+    private static final class Widths {
+        private static final int BLOCK_SHIFT = 8;
+        private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+        private static final int[] WIDE = {
+                0x1100, 0x115F, 0x231A, 0x231B, 0x2329, 0x232A, 0x23E9, 0x23EC, 0x23F0, 0x23F0, 0x23F3, 0x23F3, 0x25FD,
+                0x25FE, 0x2614, 0x2615, 0x2648, 0x2653, 0x267F, 0x267F, 0x2693, 0x2693, 0x26A1, 0x26A1, 0x26AA, 0x26AB,
+                0x26BD, 0x26BE, 0x26C4, 0x26C5, 0x26CE, 0x26CE, 0x26D4, 0x26D4, 0x26EA, 0x26EA, 0x26F2, 0x26F3, 0x26F5,
+                0x26F5, 0x26FA, 0x26FA, 0x26FD, 0x26FD, 0x2705, 0x2705, 0x270A, 0x270B, 0x2728, 0x2728, 0x274C, 0x274C,
+                0x274E, 0x274E, 0x2753, 0x2755, 0x2757, 0x2757, 0x2795, 0x2797, 0x27B0, 0x27B0, 0x27BF, 0x27BF, 0x2B1B,
+                0x2B1C, 0x2B50, 0x2B50, 0x2B55, 0x2B55, 0x2E80, 0x2E99, 0x2E9B, 0x2EF3, 0x2F00, 0x2FD5, 0x2FF0, 0x2FFB,
+                0x3000, 0x303E, 0x3041, 0x3096, 0x3099, 0x30FF, 0x3105, 0x312F, 0x3131, 0x318E, 0x3190, 0x31E3, 0x31F0,
+                0x321E, 0x3220, 0x3247, 0x3250, 0x4DBF, 0x4E00, 0xA48C, 0xA490, 0xA4C6, 0xA960, 0xA97C, 0xAC00, 0xD7A3,
+                0xF900, 0xFAFF, 0xFE10, 0xFE19, 0xFE30, 0xFE52, 0xFE54, 0xFE66, 0xFE68, 0xFE6B, 0xFF01, 0xFF60, 0xFFE0,
+                0xFFE6, 0x16FE0, 0x16FE4, 0x16FF0, 0x16FF1, 0x17000, 0x187F7, 0x18800, 0x18CD5, 0x18D00, 0x18D08,
+                0x1AFF0, 0x1AFF3, 0x1AFF5, 0x1AFFB, 0x1AFFD, 0x1AFFE, 0x1B000, 0x1B122, 0x1B132, 0x1B132, 0x1B150,
+                0x1B152, 0x1B155, 0x1B155, 0x1B164, 0x1B167, 0x1B170, 0x1B2FB, 0x1F004, 0x1F004, 0x1F0CF, 0x1F0CF,
+                0x1F18E, 0x1F18E, 0x1F191, 0x1F19A, 0x1F200, 0x1F202, 0x1F210, 0x1F23B, 0x1F240, 0x1F248, 0x1F250,
+                0x1F251, 0x1F260, 0x1F265, 0x1F300, 0x1F320, 0x1F32D, 0x1F335, 0x1F337, 0x1F37C, 0x1F37E, 0x1F393,
+                0x1F3A0, 0x1F3CA, 0x1F3CF, 0x1F3D3, 0x1F3E0, 0x1F3F0, 0x1F3F4, 0x1F3F4, 0x1F3F8, 0x1F43E, 0x1F440,
+                0x1F440, 0x1F442, 0x1F4FC, 0x1F4FF, 0x1F53D, 0x1F54B, 0x1F54E, 0x1F550, 0x1F567, 0x1F57A, 0x1F57A,
+                0x1F595, 0x1F596, 0x1F5A4, 0x1F5A4, 0x1F5FB, 0x1F64F, 0x1F680, 0x1F6C5, 0x1F6CC, 0x1F6CC, 0x1F6D0,
+                0x1F6D2, 0x1F6D5, 0x1F6D7, 0x1F6DC, 0x1F6DF, 0x1F6EB, 0x1F6EC, 0x1F6F4, 0x1F6FC, 0x1F7E0, 0x1F7EB,
+                0x1F7F0, 0x1F7F0, 0x1F90C, 0x1F93A, 0x1F93C, 0x1F945, 0x1F947, 0x1F9FF, 0x1FA70, 0x1FA7C, 0x1FA80,
+                0x1FA88, 0x1FA90, 0x1FABD, 0x1FABF, 0x1FAC5, 0x1FACE, 0x1FADB, 0x1FAE0, 0x1FAE8, 0x1FAF0, 0x1FAF8,
+                0x20000, 0x2FFFD, 0x30000, 0x3FFFD
+        };
+        private static final int[] ZERO = {
+                0x0000, 0x001F, 0x007F, 0x009F, 0x0300, 0x036F, 0x0483, 0x0489, 0x0591, 0x05BD, 0x05BF, 0x05BF, 0x05C1,
+                0x05C2, 0x05C4, 0x05C5, 0x05C7, 0x05C7, 0x0600, 0x0605, 0x0610, 0x061A, 0x061C, 0x061C, 0x064B, 0x065F,
+                0x0670, 0x0670, 0x06D6, 0x06DD, 0x06DF, 0x06E4, 0x06E7, 0x06E8, 0x06EA, 0x06ED, 0x070F, 0x070F, 0x0711,
+                0x0711, 0x0730, 0x074A, 0x07A6, 0x07B0, 0x07EB, 0x07F3, 0x07FD, 0x07FD, 0x0816, 0x0819, 0x081B, 0x0823,
+                0x0825, 0x0827, 0x0829, 0x082D, 0x0859, 0x085B, 0x0890, 0x0891, 0x0898, 0x089F, 0x08CA, 0x0902, 0x093A,
+                0x093A, 0x093C, 0x093C, 0x0941, 0x0948, 0x094D, 0x094D, 0x0951, 0x0957, 0x0962, 0x0963, 0x0981, 0x0981,
+                0x09BC, 0x09BC, 0x09C1, 0x09C4, 0x09CD, 0x09CD, 0x09E2, 0x09E3, 0x09FE, 0x09FE, 0x0A01, 0x0A02, 0x0A3C,
+                0x0A3C, 0x0A41, 0x0A42, 0x0A47, 0x0A48, 0x0A4B, 0x0A4D, 0x0A51, 0x0A51, 0x0A70, 0x0A71, 0x0A75, 0x0A75,
+                0x0A81, 0x0A82, 0x0ABC, 0x0ABC, 0x0AC1, 0x0AC5, 0x0AC7, 0x0AC8, 0x0ACD, 0x0ACD, 0x0AE2, 0x0AE3, 0x0AFA,
+                0x0AFF, 0x0B01, 0x0B01, 0x0B3C, 0x0B3C, 0x0B3F, 0x0B3F, 0x0B41, 0x0B44, 0x0B4D, 0x0B4D, 0x0B55, 0x0B56,
+                0x0B62, 0x0B63, 0x0B82, 0x0B82, 0x0BC0, 0x0BC0, 0x0BCD, 0x0BCD, 0x0C00, 0x0C00, 0x0C04, 0x0C04, 0x0C3C,
+                0x0C3C, 0x0C3E, 0x0C40, 0x0C46, 0x0C48, 0x0C4A, 0x0C4D, 0x0C55, 0x0C56, 0x0C62, 0x0C63, 0x0C81, 0x0C81,
+                0x0CBC, 0x0CBC, 0x0CBF, 0x0CBF, 0x0CC6, 0x0CC6, 0x0CCC, 0x0CCD, 0x0CE2, 0x0CE3, 0x0D00, 0x0D01, 0x0D3B,
+                0x0D3C, 0x0D41, 0x0D44, 0x0D4D, 0x0D4D, 0x0D62, 0x0D63, 0x0D81, 0x0D81, 0x0DCA, 0x0DCA, 0x0DD2, 0x0DD4,
+                0x0DD6, 0x0DD6, 0x0E31, 0x0E31, 0x0E34, 0x0E3A, 0x0E47, 0x0E4E, 0x0EB1, 0x0EB1, 0x0EB4, 0x0EBC, 0x0EC8,
+                0x0ECE, 0x0F18, 0x0F19, 0x0F35, 0x0F35, 0x0F37, 0x0F37, 0x0F39, 0x0F39, 0x0F71, 0x0F7E, 0x0F80, 0x0F84,
+                0x0F86, 0x0F87, 0x0F8D, 0x0F97, 0x0F99, 0x0FBC, 0x0FC6, 0x0FC6, 0x102D, 0x1030, 0x1032, 0x1037, 0x1039,
+                0x103A, 0x103D, 0x103E, 0x1058, 0x1059, 0x105E, 0x1060, 0x1071, 0x1074, 0x1082, 0x1082, 0x1085, 0x1086,
+                0x108D, 0x108D, 0x109D, 0x109D, 0x1160, 0x11FF, 0x135D, 0x135F, 0x1712, 0x1714, 0x1732, 0x1733, 0x1752,
+                0x1753, 0x1772, 0x1773, 0x17B4, 0x17B5, 0x17B7, 0x17BD, 0x17C6, 0x17C6, 0x17C9, 0x17D3, 0x17DD, 0x17DD,
+                0x180B, 0x180F, 0x1885, 0x1886, 0x18A9, 0x18A9, 0x1920, 0x1922, 0x1927, 0x1928, 0x1932, 0x1932, 0x1939,
+                0x193B, 0x1A17, 0x1A18, 0x1A1B, 0x1A1B, 0x1A56, 0x1A56, 0x1A58, 0x1A5E, 0x1A60, 0x1A60, 0x1A62, 0x1A62,
+                0x1A65, 0x1A6C, 0x1A73, 0x1A7C, 0x1A7F, 0x1A7F, 0x1AB0, 0x1ACE, 0x1B00, 0x1B03, 0x1B34, 0x1B34, 0x1B36,
+                0x1B3A, 0x1B3C, 0x1B3C, 0x1B42, 0x1B42, 0x1B6B, 0x1B73, 0x1B80, 0x1B81, 0x1BA2, 0x1BA5, 0x1BA8, 0x1BA9,
+                0x1BAB, 0x1BAD, 0x1BE6, 0x1BE6, 0x1BE8, 0x1BE9, 0x1BED, 0x1BED, 0x1BEF, 0x1BF1, 0x1C2C, 0x1C33, 0x1C36,
+                0x1C37, 0x1CD0, 0x1CD2, 0x1CD4, 0x1CE0, 0x1CE2, 0x1CE8, 0x1CED, 0x1CED, 0x1CF4, 0x1CF4, 0x1CF8, 0x1CF9,
+                0x1DC0, 0x1DFF, 0x200B, 0x200F, 0x202A, 0x202E, 0x2060, 0x2064, 0x2066, 0x206F, 0x20D0, 0x20F0, 0x2CEF,
+                0x2CF1, 0x2D7F, 0x2D7F, 0x2DE0, 0x2DFF, 0x302A, 0x302D, 0x3099, 0x309A, 0xA66F, 0xA672, 0xA674, 0xA67D,
+                0xA69E, 0xA69F, 0xA6F0, 0xA6F1, 0xA802, 0xA802, 0xA806, 0xA806, 0xA80B, 0xA80B, 0xA825, 0xA826, 0xA82C,
+                0xA82C, 0xA8C4, 0xA8C5, 0xA8E0, 0xA8F1, 0xA8FF, 0xA8FF, 0xA926, 0xA92D, 0xA947, 0xA951, 0xA980, 0xA982,
+                0xA9B3, 0xA9B3, 0xA9B6, 0xA9B9, 0xA9BC, 0xA9BD, 0xA9E5, 0xA9E5, 0xAA29, 0xAA2E, 0xAA31, 0xAA32, 0xAA35,
+                0xAA36, 0xAA43, 0xAA43, 0xAA4C, 0xAA4C, 0xAA7C, 0xAA7C, 0xAAB0, 0xAAB0, 0xAAB2, 0xAAB4, 0xAAB7, 0xAAB8,
+                0xAABE, 0xAABF, 0xAAC1, 0xAAC1, 0xAAEC, 0xAAED, 0xAAF6, 0xAAF6, 0xABE5, 0xABE5, 0xABE8, 0xABE8, 0xABED,
+                0xABED, 0xD7B0, 0xD7FF, 0xFB1E, 0xFB1E, 0xFE00, 0xFE0F, 0xFE20, 0xFE2F, 0xFEFF, 0xFEFF, 0xFFF9,
+                0xFFFB, 0x101FD, 0x101FD, 0x102E0, 0x102E0, 0x10376, 0x1037A, 0x10A01, 0x10A03, 0x10A05, 0x10A06,
+                0x10A0C, 0x10A0F, 0x10A38, 0x10A3A, 0x10A3F, 0x10A3F, 0x10AE5, 0x10AE6, 0x10D24, 0x10D27, 0x10EAB,
+                0x10EAC, 0x10EFD, 0x10EFF, 0x10F46, 0x10F50, 0x10F82, 0x10F85, 0x11001, 0x11001, 0x11038, 0x11046,
+                0x11070, 0x11070, 0x11073, 0x11074, 0x1107F, 0x11081, 0x110B3, 0x110B6, 0x110B9, 0x110BA, 0x110BD,
+                0x110BD, 0x110C2, 0x110C2, 0x110CD, 0x110CD, 0x11100, 0x11102, 0x11127, 0x1112B, 0x1112D, 0x11134,
+                0x11173, 0x11173, 0x11180, 0x11181, 0x111B6, 0x111BE, 0x111C9, 0x111CC, 0x111CF, 0x111CF, 0x1122F,
+                0x11231, 0x11234, 0x11234, 0x11236, 0x11237, 0x1123E, 0x1123E, 0x11241, 0x11241, 0x112DF, 0x112DF,
+                0x112E3, 0x112EA, 0x11300, 0x11301, 0x1133B, 0x1133C, 0x11340, 0x11340, 0x11366, 0x1136C, 0x11370,
+                0x11374, 0x11438, 0x1143F, 0x11442, 0x11444, 0x11446, 0x11446, 0x1145E, 0x1145E, 0x114B3, 0x114B8,
+                0x114BA, 0x114BA, 0x114BF, 0x114C0, 0x114C2, 0x114C3, 0x115B2, 0x115B5, 0x115BC, 0x115BD, 0x115BF,
+                0x115C0, 0x115DC, 0x115DD, 0x11633, 0x1163A, 0x1163D, 0x1163D, 0x1163F, 0x11640, 0x116AB, 0x116AB,
+                0x116AD, 0x116AD, 0x116B0, 0x116B5, 0x116B7, 0x116B7, 0x1171D, 0x1171F, 0x11722, 0x11725, 0x11727,
+                0x1172B, 0x1182F, 0x11837, 0x11839, 0x1183A, 0x1193B, 0x1193C, 0x1193E, 0x1193E, 0x11943, 0x11943,
+                0x119D4, 0x119D7, 0x119DA, 0x119DB, 0x119E0, 0x119E0, 0x11A01, 0x11A0A, 0x11A33, 0x11A38, 0x11A3B,
+                0x11A3E, 0x11A47, 0x11A47, 0x11A51, 0x11A56, 0x11A59, 0x11A5B, 0x11A8A, 0x11A96, 0x11A98, 0x11A99,
+                0x11C30, 0x11C36, 0x11C38, 0x11C3D, 0x11C3F, 0x11C3F, 0x11C92, 0x11CA7, 0x11CAA, 0x11CB0, 0x11CB2,
+                0x11CB3, 0x11CB5, 0x11CB6, 0x11D31, 0x11D36, 0x11D3A, 0x11D3A, 0x11D3C, 0x11D3D, 0x11D3F, 0x11D45,
+                0x11D47, 0x11D47, 0x11D90, 0x11D91, 0x11D95, 0x11D95, 0x11D97, 0x11D97, 0x11EF3, 0x11EF4, 0x11F00,
+                0x11F01, 0x11F36, 0x11F3A, 0x11F40, 0x11F40, 0x11F42, 0x11F42, 0x13430, 0x13440, 0x13447, 0x13455,
+                0x16AF0, 0x16AF4, 0x16B30, 0x16B36, 0x16F4F, 0x16F4F, 0x16F8F, 0x16F92, 0x16FE4, 0x16FE4, 0x1BC9D,
+                0x1BC9E, 0x1BCA0, 0x1BCA3, 0x1CF00, 0x1CF2D, 0x1CF30, 0x1CF46, 0x1D167, 0x1D169, 0x1D173, 0x1D182,
+                0x1D185, 0x1D18B, 0x1D1AA, 0x1D1AD, 0x1D242, 0x1D244, 0x1DA00, 0x1DA36, 0x1DA3B, 0x1DA6C, 0x1DA75,
+                0x1DA75, 0x1DA84, 0x1DA84, 0x1DA9B, 0x1DA9F, 0x1DAA1, 0x1DAAF, 0x1E000, 0x1E006, 0x1E008, 0x1E018,
+                0x1E01B, 0x1E021, 0x1E023, 0x1E024, 0x1E026, 0x1E02A, 0x1E08F, 0x1E08F, 0x1E130, 0x1E136, 0x1E2AE,
+                0x1E2AE, 0x1E2EC, 0x1E2EF, 0x1E4EC, 0x1E4EF, 0x1E8D0, 0x1E8D6, 0x1E944, 0x1E94A, 0xE0001, 0xE0001,
+                0xE0020, 0xE007F, 0xE0100, 0xE01EF
+        };
+        private static final char[] BLOCKS = new char[(Character.MAX_CODE_POINT + 1) >> BLOCK_SHIFT];
+        private static final byte[] WIDTHS = widths();
+
+        private Widths() {
+        }
+
+        static int of(int codePoint) {
+            return WIDTHS[BLOCKS[codePoint >> BLOCK_SHIFT] << BLOCK_SHIFT | codePoint & (BLOCK_SIZE - 1)];
+        }
+
+        private static byte[] widths() {
+            java.util.Map<java.nio.ByteBuffer, Integer> distinct = new java.util.HashMap<>();
+            java.util.List<byte[]> blocks = new java.util.ArrayList<>();
+            // The first two blocks are all narrow and all wide, most blocks are one of them
+            for (byte width = 1; width <= 2; width++) {
+                byte[] uniform = new byte[BLOCK_SIZE];
+                java.util.Arrays.fill(uniform, width);
+                distinct.put(java.nio.ByteBuffer.wrap(uniform), blocks.size());
+                blocks.add(uniform);
+            }
+
+            byte[] block = new byte[BLOCK_SIZE];
+            int wide = 0;
+            int zero = 0;
+            for (int i = 0; i < BLOCKS.length; i++) {
+                int start = i << BLOCK_SHIFT;
+                int end = start + BLOCK_SIZE - 1;
+                wide = skip(WIDE, wide, start);
+                zero = skip(ZERO, zero, start);
+                boolean anyWide = wide < WIDE.length && WIDE[wide] <= end;
+                boolean anyZero = zero < ZERO.length && ZERO[zero] <= end;
+                if (!anyZero && (!anyWide || (WIDE[wide] <= start && WIDE[wide + 1] >= end))) {
+                    // Blocks without any range or within a single wide one need neither filling nor hashing
+                    BLOCKS[i] = (char) (anyWide ? 1 : 0);
+                    continue;
+                }
+
+                java.util.Arrays.fill(block, (byte) 1);
+                fill(block, start, WIDE, wide, (byte) 2);
+                // Zero widths win, a few combining marks are in wide ranges
+                fill(block, start, ZERO, zero, (byte) 0);
+                Integer index = distinct.get(java.nio.ByteBuffer.wrap(block));
+                if (index == null) {
+                    index = blocks.size();
+                    byte[] copy = block.clone();
+                    blocks.add(copy);
+                    distinct.put(java.nio.ByteBuffer.wrap(copy), index);
+                }
+                BLOCKS[i] = (char) (int) index;
+            }
+
+            byte[] widths = new byte[blocks.size() << BLOCK_SHIFT];
+            for (int i = 0; i < blocks.size(); i++) {
+                System.arraycopy(blocks.get(i), 0, widths, i << BLOCK_SHIFT, BLOCK_SIZE);
+            }
+            return widths;
+        }
+
+        /**
+         * @param ranges Sorted pairs of first and last code points
+         * @param from   Position of the first range that may overlap the previous block
+         * @param start  First code point of the block
+         * @return Position of the first range that ends in the block or after it
+         */
+        private static int skip(int[] ranges, int from, int start) {
+            while (from < ranges.length && ranges[from + 1] < start) {
+                from += 2;
+            }
+            return from;
+        }
+
+        /**
+         * Sets the width of the code points of a block that are in the given ranges.
+         *
+         * @param block  Widths of the block
+         * @param start  First code point of the block
+         * @param ranges Sorted pairs of first and last code points
+         * @param from   Position of the first range that ends in the block or after it
+         * @param width  The width to set
+         */
+        private static void fill(byte[] block, int start, int[] ranges, int from, byte width) {
+            int end = start + BLOCK_SIZE - 1;
+            for (int i = from; i < ranges.length && ranges[i] <= end; i += 2) {
+                java.util.Arrays.fill(block, Math.max(ranges[i], start) - start,
+                        Math.min(ranges[i + 1], end) - start + 1, width);
+            }
+        }
+    }
+
+    /**
+     * The CSS named colors in a minimal perfect hash table, which is only built when needed.
+     * <p>
+     * Hash and displace: the names are split into buckets by their hash. Starting with the largest bucket, every
+     * bucket gets the first seed that moves all of its names to free slots when mixed into their hash. With exactly
+     * one slot per name, a lookup hashes the name once, reads the seed of its bucket and compares a single candidate.
+     */
+    private static final class NamedColors {
+        private static final String[] NAMES = {
+                "aliceblue", "antiquewhite", "aqua", "aquamarine", "azure", "beige", "bisque", "black",
+                "blanchedalmond", "blue", "blueviolet", "brown", "burlywood", "cadetblue", "chartreuse", "chocolate",
+                "coral", "cornflowerblue", "cornsilk", "crimson", "cyan", "darkblue", "darkcyan", "darkgoldenrod",
+                "darkgray", "darkgreen", "darkgrey", "darkkhaki", "darkmagenta", "darkolivegreen", "darkorange",
+                "darkorchid", "darkred", "darksalmon", "darkseagreen", "darkslateblue", "darkslategray",
+                "darkslategrey", "darkturquoise", "darkviolet", "deeppink", "deepskyblue", "dimgray", "dimgrey",
+                "dodgerblue", "firebrick", "floralwhite", "forestgreen", "fuchsia", "gainsboro", "ghostwhite", "gold",
+                "goldenrod", "gray", "green", "greenyellow", "grey", "honeydew", "hotpink", "indianred", "indigo",
+                "ivory", "khaki", "lavender", "lavenderblush", "lawngreen", "lemonchiffon", "lightblue", "lightcoral",
+                "lightcyan", "lightgoldenrodyellow", "lightgray", "lightgreen", "lightgrey", "lightpink", "lightsalmon",
+                "lightseagreen", "lightskyblue", "lightslategray", "lightslategrey", "lightsteelblue", "lightyellow",
+                "lime", "limegreen", "linen", "magenta", "maroon", "mediumaquamarine", "mediumblue", "mediumorchid",
+                "mediumpurple", "mediumseagreen", "mediumslateblue", "mediumspringgreen", "mediumturquoise",
+                "mediumvioletred", "midnightblue", "mintcream", "mistyrose", "moccasin", "navajowhite", "navy",
+                "oldlace", "olive", "olivedrab", "orange", "orangered", "orchid", "palegoldenrod", "palegreen",
+                "paleturquoise", "palevioletred", "papayawhip", "peachpuff", "peru", "pink", "plum", "powderblue",
+                "purple", "rebeccapurple", "red", "rosybrown", "royalblue", "saddlebrown", "salmon", "sandybrown",
+                "seagreen", "seashell", "sienna", "silver", "skyblue", "slateblue", "slategray", "slategrey", "snow",
+                "springgreen", "steelblue", "tan", "teal", "thistle", "tomato", "turquoise", "violet", "wheat", "white",
+                "whitesmoke", "yellow", "yellowgreen"
+        };
+        private static final int[] VALUES = {
+                0xf0f8ff, 0xfaebd7, 0x00ffff, 0x7fffd4, 0xf0ffff, 0xf5f5dc, 0xffe4c4, 0x000000, 0xffebcd, 0x0000ff,
+                0x8a2be2, 0xa52a2a, 0xdeb887, 0x5f9ea0, 0x7fff00, 0xd2691e, 0xff7f50, 0x6495ed, 0xfff8dc, 0xdc143c,
+                0x00ffff, 0x00008b, 0x008b8b, 0xb8860b, 0xa9a9a9, 0x006400, 0xa9a9a9, 0xbdb76b, 0x8b008b, 0x556b2f,
+                0xff8c00, 0x9932cc, 0x8b0000, 0xe9967a, 0x8fbc8f, 0x483d8b, 0x2f4f4f, 0x2f4f4f, 0x00ced1, 0x9400d3,
+                0xff1493, 0x00bfff, 0x696969, 0x696969, 0x1e90ff, 0xb22222, 0xfffaf0, 0x228b22, 0xff00ff, 0xdcdcdc,
+                0xf8f8ff, 0xffd700, 0xdaa520, 0x808080, 0x008000, 0xadff2f, 0x808080, 0xf0fff0, 0xff69b4, 0xcd5c5c,
+                0x4b0082, 0xfffff0, 0xf0e68c, 0xe6e6fa, 0xfff0f5, 0x7cfc00, 0xfffacd, 0xadd8e6, 0xf08080, 0xe0ffff,
+                0xfafad2, 0xd3d3d3, 0x90ee90, 0xd3d3d3, 0xffb6c1, 0xffa07a, 0x20b2aa, 0x87cefa, 0x778899, 0x778899,
+                0xb0c4de, 0xffffe0, 0x00ff00, 0x32cd32, 0xfaf0e6, 0xff00ff, 0x800000, 0x66cdaa, 0x0000cd, 0xba55d3,
+                0x9370db, 0x3cb371, 0x7b68ee, 0x00fa9a, 0x48d1cc, 0xc71585, 0x191970, 0xf5fffa, 0xffe4e1, 0xffe4b5,
+                0xffdead, 0x000080, 0xfdf5e6, 0x808000, 0x6b8e23, 0xffa500, 0xff4500, 0xda70d6, 0xeee8aa, 0x98fb98,
+                0xafeeee, 0xdb7093, 0xffefd5, 0xffdab9, 0xcd853f, 0xffc0cb, 0xdda0dd, 0xb0e0e6, 0x800080, 0x663399,
+                0xff0000, 0xbc8f8f, 0x4169e1, 0x8b4513, 0xfa8072, 0xf4a460, 0x2e8b57, 0xfff5ee, 0xa0522d, 0xc0c0c0,
+                0x87ceeb, 0x6a5acd, 0x708090, 0x708090, 0xfffafa, 0x00ff7f, 0x4682b4, 0xd2b48c, 0x008080, 0xd8bfd8,
+                0xff6347, 0x40e0d0, 0xee82ee, 0xf5deb3, 0xffffff, 0xf5f5f5, 0xffff00, 0x9acd32
+        };
+        private static final int BUCKETS = NAMES.length / 4 + 1;
+        private static final int[] SEEDS = new int[BUCKETS];
+        private static final String[] SLOT_NAMES = new String[NAMES.length];
+        private static final Color[] COLORS = colors();
+
+        private NamedColors() {
+        }
+
+        static Color get(String name) {
+            int hash = hash(name);
+            int slot = slot(hash, SEEDS[bucket(hash)]);
+            String candidate = SLOT_NAMES[slot];
+            if (candidate.length() != name.length()) {
+                throw unknown();
+            }
+            for (int i = 0; i < candidate.length(); i++) {
+                if (lowerCase(name.charAt(i)) != candidate.charAt(i)) {
+                    throw unknown();
+                }
+            }
+            return COLORS[slot];
+        }
+
+        private static IllegalArgumentException unknown() {
+            return new IllegalArgumentException("Color name must be one of the CSS named colors like 'orange'");
+        }
+
+        private static Color[] colors() {
+            int[] buckets = new int[NAMES.length];
+            int[] sizes = new int[BUCKETS];
+            for (int i = 0; i < NAMES.length; i++) {
+                buckets[i] = bucket(hash(NAMES[i]));
+                sizes[buckets[i]]++;
+            }
+            Integer[] order = new Integer[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                order[i] = i;
+            }
+            java.util.Arrays.sort(order, (a, b) -> sizes[b] - sizes[a]);
+
+            Color[] colors = new Color[NAMES.length];
+            int[] members = new int[NAMES.length];
+            int[] slots = new int[NAMES.length];
+            for (int bucket : order) {
+                int size = 0;
+                for (int i = 0; i < NAMES.length; i++) {
+                    if (buckets[i] == bucket) {
+                        members[size++] = i;
+                    }
+                }
+                int seed = 1;
+                while (!fits(members, size, seed, slots)) {
+                    seed++;
+                }
+                SEEDS[bucket] = seed;
+                for (int j = 0; j < size; j++) {
+                    SLOT_NAMES[slots[j]] = NAMES[members[j]];
+                    colors[slots[j]] = new Color(RGB_COLOR | VALUES[members[j]]);
+                }
+            }
+            return colors;
+        }
+
+        /**
+         * @param members Indexes of the names in a bucket
+         * @param size    Number of names in the bucket
+         * @param seed    The seed to try
+         * @param slots   Receives the slots of the names
+         * @return Whether all names land in distinct free slots with the given seed
+         */
+        private static boolean fits(int[] members, int size, int seed, int[] slots) {
+            for (int j = 0; j < size; j++) {
+                slots[j] = slot(hash(NAMES[members[j]]), seed);
+                if (SLOT_NAMES[slots[j]] != null) {
+                    return false;
+                }
+                for (int k = 0; k < j; k++) {
+                    if (slots[k] == slots[j]) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * FNV-1a over the names in lower case, so the lookup ignores case without creating a lower case copy.
+         */
+        private static int hash(String name) {
+            int hash = 0x811C9DC5;
+            for (int i = 0; i < name.length(); i++) {
+                hash = (hash ^ lowerCase(name.charAt(i))) * 0x01000193;
+            }
+            return hash;
+        }
+
+        private static char lowerCase(char c) {
+            return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+
+        private static int bucket(int hash) {
+            return (mix(hash) >>> 1) % BUCKETS;
+        }
+
+        private static int slot(int hash, int seed) {
+            return (mix(hash + seed * 0x9E3779B9) >>> 1) % NAMES.length;
+        }
+
+        /**
+         * The finalizer of MurmurHash3, which spreads every bit of the input over the whole result.
+         */
+        private static int mix(int hash) {
+            hash = (hash ^ (hash >>> 16)) * 0x85EBCA6B;
+            hash = (hash ^ (hash >>> 13)) * 0xC2B2AE35;
+            return hash ^ (hash >>> 16);
+        }
+    }
+
+    /**
+     * Finds the nearest palette entry by Euclidean RGB distance in constant time.
+     * <p>
+     * The RGB cube is split into 8 x 8 x 8 buckets. For every bucket, only the palette entries that can be the
+     * nearest one for any color inside of it are kept as candidates: an entry is dropped if its minimum distance to
+     * the bucket exceeds the maximum distance of another entry. For the 16 basic colors, buckets keep two or three
+     * candidates on average and six at most, so a lookup is exact without searching the whole palette and the table
+     * is built in a few milliseconds.
+     */
+    private static final class NearestColorTable {
+        private static final int BUCKET_BITS = 3;
+        private static final int BUCKETS = 1 << BUCKET_BITS;
+        private static final int BUCKET_SIZE = 256 / BUCKETS;
+
+        private final int[] palette;
+        private final int[] offsets = new int[BUCKETS * BUCKETS * BUCKETS + 1];
+        private final byte[] candidates;
+
+        /**
+         * @param palette Packed colors indexed by their palette index
+         * @param from    First palette index to consider
+         * @param to      Palette index after the last one to consider
+         */
+        NearestColorTable(int[] palette, int from, int to) {
+            this.palette = palette;
+            // Squared distances of every component of every entry to the nearest and farthest value of every range of
+            // a bucket, so the distance to a bucket is the sum of three of them
+            int[] near = new int[(to - from) * 3 * BUCKETS];
+            int[] far = new int[near.length];
+            for (int i = 0; i < near.length; i++) {
+                int component = (palette[from + i / (3 * BUCKETS)] >> (16 - 8 * (i / BUCKETS % 3))) & 0xFF;
+                near[i] = distanceToRange(component, i % BUCKETS * BUCKET_SIZE, false);
+                far[i] = distanceToRange(component, i % BUCKETS * BUCKET_SIZE, true);
+            }
+
+            byte[] found = new byte[BUCKETS * BUCKETS * BUCKETS * 4];
+            int count = 0;
+            for (int bucket = 0; bucket < BUCKETS * BUCKETS * BUCKETS; bucket++) {
+                int red = bucket >> 2 * BUCKET_BITS;
+                int green = BUCKETS + ((bucket >> BUCKET_BITS) & (BUCKETS - 1));
+                int blue = 2 * BUCKETS + (bucket & (BUCKETS - 1));
+                int bound = Integer.MAX_VALUE;
+                for (int i = 0; i < near.length; i += 3 * BUCKETS) {
+                    bound = Math.min(bound, far[i + red] + far[i + green] + far[i + blue]);
+                }
+
+                offsets[bucket] = count;
+                for (int i = 0; i < near.length; i += 3 * BUCKETS) {
+                    if (near[i + red] + near[i + green] + near[i + blue] <= bound) {
+                        if (count == found.length) {
+                            found = java.util.Arrays.copyOf(found, found.length * 2);
+                        }
+                        found[count++] = (byte) (from + i / (3 * BUCKETS));
+                    }
+                }
+            }
+            offsets[offsets.length - 1] = count;
+            candidates = java.util.Arrays.copyOf(found, count);
+        }
+
+        /**
+         * @param rgb Color value in the form of 0xRRGGBB
+         * @return Palette index of the nearest entry, the lower index on ties
+         */
+        int nearest(int rgb) {
+            int bucket = ((rgb >> 15) & 0x1C0) | ((rgb >> 10) & 0x38) | ((rgb >> 5) & 0x7);
+            int start = offsets[bucket];
+            int end = offsets[bucket + 1];
+            int best = candidates[start] & 0xFF;
+            if (end - start == 1) {
+                return best;
+            }
+
+            int bestDistance = squaredDistance(rgb, palette[best]);
+            for (int i = start + 1; i < end; i++) {
+                int candidate = candidates[i] & 0xFF;
+                int distance = squaredDistance(rgb, palette[candidate]);
+                if (distance < bestDistance) {
+                    best = candidate;
+                    bestDistance = distance;
+                }
+            }
+            return best;
+        }
+
+        private static int distanceToRange(int component, int low, boolean maximum) {
+            int high = low + BUCKET_SIZE - 1;
+            int delta;
+            if (maximum) {
+                delta = Math.max(Math.abs(component - low), Math.abs(component - high));
+            } else if (component < low) {
+                delta = low - component;
+            } else if (component > high) {
+                delta = component - high;
+            } else {
+                delta = 0;
+            }
+            return delta * delta;
+        }
+    }
+
+    /**
+     * Conversions between sRGB and the OKLab color space.
+     *
+     * @see <a href="https://bottosson.github.io/posts/oklab/">A perceptual color space for image processing</a>
+     */
+    private static final class Oklab {
+        private static final double[] LINEAR = linear();
+
+        private Oklab() {
+        }
+
+        private static double[] linear() {
+            double[] linear = new double[256];
+            for (int i = 0; i < linear.length; i++) {
+                double c = i / 255.0;
+                linear[i] = c <= 0.04045 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4);
+            }
+            return linear;
+        }
+
+        static double lightness(double l, double m, double s) {
+            return 0.2104542553 * l + 0.7936177850 * m - 0.0040720468 * s;
+        }
+
+        static double a(double l, double m, double s) {
+            return 1.9779984951 * l - 2.4285922050 * m + 0.4505937099 * s;
+        }
+
+        static double b(double l, double m, double s) {
+            return 0.0259040371 * l + 0.7827717662 * m - 0.8086757660 * s;
+        }
+
+        static double l(int red, int green, int blue) {
+            return Math.cbrt(0.4122214708 * LINEAR[red] + 0.5363325363 * LINEAR[green] + 0.0514459929 * LINEAR[blue]);
+        }
+
+        static double m(int red, int green, int blue) {
+            return Math.cbrt(0.2119034982 * LINEAR[red] + 0.6806995451 * LINEAR[green] + 0.1073969566 * LINEAR[blue]);
+        }
+
+        static double s(int red, int green, int blue) {
+            return Math.cbrt(0.0883024619 * LINEAR[red] + 0.2817188376 * LINEAR[green] + 0.6299787005 * LINEAR[blue]);
+        }
+
+        /**
+         * Converts back from OKLab, clipping colors outside of sRGB.
+         *
+         * @return Color value in the form of 0xRRGGBB
+         */
+        static int toPackedRgb(double lightness, double a, double b) {
+            double l = lightness + 0.3963377774 * a + 0.2158037573 * b;
+            double m = lightness - 0.1055613458 * a - 0.0638541728 * b;
+            double s = lightness - 0.0894841775 * a - 1.2914855480 * b;
+            l = l * l * l;
+            m = m * m * m;
+            s = s * s * s;
+            int red = encode(4.0767416621 * l - 3.3077115913 * m + 0.2309699292 * s);
+            int green = encode(-1.2684380046 * l + 2.6097574011 * m - 0.3413193965 * s);
+            int blue = encode(-0.0041960863 * l - 0.7034186147 * m + 1.7076147010 * s);
+            return (red << 16) | (green << 8) | blue;
+        }
+
+        /**
+         * @param linear Linear sRGB component
+         * @return Gamma encoded component (0 - 255)
+         */
+        private static int encode(double linear) {
+            if (linear <= 0) {
+                return 0;
+            }
+            if (linear >= 1) {
+                return 255;
+            }
+            double c = linear <= 0.0031308 ? linear * 12.92 : 1.055 * Math.pow(linear, 1 / 2.4) - 0.055;
+            return (int) Math.round(c * 255);
+        }
+    }
+
+    /**
+     * Finds the nearest palette entry by distance in OKLab using a k-d tree.
+     * <p>
+     * The tree is stored implicitly: every range of the arrays holds a subtree with its root in the middle, the
+     * lower half on the near side of the splitting plane and the upper half on the far side.
+     */
+    private static final class OklabTree {
+        private final int[] indexes;
+        private final double[] points;
+        private final byte[] axes;
+
+        /**
+         * @param palette Packed colors indexed by their palette index
+         * @param from    First palette index to consider
+         * @param to      Palette index after the last one to consider
+         */
+        OklabTree(int[] palette, int from, int to) {
+            int size = to - from;
+            indexes = new int[size];
+            points = new double[size * 3];
+            axes = new byte[size];
+            for (int i = 0; i < size; i++) {
+                int rgb = palette[from + i];
+                double l = Oklab.l(red(rgb), green(rgb), blue(rgb));
+                double m = Oklab.m(red(rgb), green(rgb), blue(rgb));
+                double s = Oklab.s(red(rgb), green(rgb), blue(rgb));
+                indexes[i] = from + i;
+                points[i * 3] = Oklab.lightness(l, m, s);
+                points[i * 3 + 1] = Oklab.a(l, m, s);
+                points[i * 3 + 2] = Oklab.b(l, m, s);
+            }
+            build(0, size);
+        }
+
+        /**
+         * Sorts the range by its widest axis and recurses into both halves around the median.
+         */
+        private void build(int from, int to) {
+            if (to - from < 2) {
+                return;
+            }
+
+            int axis = widestAxis(from, to);
+            // Insertion sort is fine for a few hundred points that are sorted once
+            for (int i = from + 1; i < to; i++) {
+                for (int j = i; j > from && points[(j - 1) * 3 + axis] > points[j * 3 + axis]; j--) {
+                    swap(j, j - 1);
+                }
+            }
+            int middle = (from + to) >>> 1;
+            axes[middle] = (byte) axis;
+            build(from, middle);
+            build(middle + 1, to);
+        }
+
+        private int widestAxis(int from, int to) {
+            int widest = 0;
+            double widestSpread = -1;
+            for (int axis = 0; axis < 3; axis++) {
+                double min = Double.MAX_VALUE;
+                double max = -Double.MAX_VALUE;
+                for (int i = from; i < to; i++) {
+                    min = Math.min(min, points[i * 3 + axis]);
+                    max = Math.max(max, points[i * 3 + axis]);
+                }
+                if (max - min > widestSpread) {
+                    widest = axis;
+                    widestSpread = max - min;
+                }
+            }
+            return widest;
+        }
+
+        private void swap(int i, int j) {
+            int index = indexes[i];
+            indexes[i] = indexes[j];
+            indexes[j] = index;
+            for (int axis = 0; axis < 3; axis++) {
+                double coordinate = points[i * 3 + axis];
+                points[i * 3 + axis] = points[j * 3 + axis];
+                points[j * 3 + axis] = coordinate;
+            }
+        }
+
+        /**
+         * @return Palette index of the nearest entry, the lower index on ties
+         */
+        int nearest(int red, int green, int blue) {
+            double l = Oklab.l(red, green, blue);
+            double m = Oklab.m(red, green, blue);
+            double s = Oklab.s(red, green, blue);
+            double lightness = Oklab.lightness(l, m, s);
+            double a = Oklab.a(l, m, s);
+            double b = Oklab.b(l, m, s);
+            int middle = indexes.length >>> 1;
+            return indexes[search(0, indexes.length, lightness, a, b, middle)];
+        }
+
+        /**
+         * Searches the subtree in the given range.
+         *
+         * @param best Position of the best match so far
+         * @return Position of the best match including this subtree
+         */
+        private int search(int from, int to, double lightness, double a, double b, int best) {
+            if (from >= to) {
+                return best;
+            }
+
+            int middle = (from + to) >>> 1;
+            double distance = distance(middle, lightness, a, b);
+            double bestDistance = distance(best, lightness, a, b);
+            if (distance < bestDistance || (distance == bestDistance && indexes[middle] < indexes[best])) {
+                best = middle;
+            }
+
+            int axis = axes[middle];
+            double delta = (axis == 0 ? lightness : axis == 1 ? a : b) - points[middle * 3 + axis];
+            int nearFrom = delta < 0 ? from : middle + 1;
+            int nearTo = delta < 0 ? middle : to;
+            best = search(nearFrom, nearTo, lightness, a, b, best);
+            if (delta * delta <= distance(best, lightness, a, b)) {
+                best = search(delta < 0 ? middle + 1 : from, delta < 0 ? to : middle, lightness, a, b, best);
+            }
+            return best;
+        }
+
+        private double distance(int position, double lightness, double a, double b) {
+            double deltaLightness = lightness - points[position * 3];
+            double deltaA = a - points[position * 3 + 1];
+            double deltaB = b - points[position * 3 + 2];
+            return deltaLightness * deltaLightness + deltaA * deltaA + deltaB * deltaB;
+        }
     }
 }
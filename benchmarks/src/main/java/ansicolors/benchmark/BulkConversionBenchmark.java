@@ -0,0 +1,84 @@
+package ansicolors.benchmark;
+
+import ansicolors.Colors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converts a column of 1024 values at once with the bulk methods and value by value with the single value methods.
+ * Scores are columns per microsecond.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BulkConversionBenchmark {
+    private static final int SIZE = 1024;
+
+    private final double[] hues = new double[SIZE];
+    private final double[] saturations = new double[SIZE];
+    private final double[] values = new double[SIZE];
+    private final String[] hexColors = new String[SIZE];
+    private final int[] colors = new int[SIZE];
+    private final int[] rgb = new int[SIZE];
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        for (int i = 0; i < SIZE; i++) {
+            hues[i] = random.nextDouble() * 360;
+            saturations[i] = random.nextDouble();
+            values[i] = random.nextDouble();
+            colors[i] = random.nextInt(1 << 24);
+            hexColors[i] = String.format("#%06x", colors[i]);
+        }
+    }
+
+    @Benchmark
+    public int[] hsvToPackedRgbBulk() {
+        Colors.hsvToPackedRgb(hues, saturations, values, rgb);
+        return rgb;
+    }
+
+    @Benchmark
+    public int[] hsvToPackedRgbPerValue() {
+        for (int i = 0; i < SIZE; i++) {
+            rgb[i] = Colors.hsvToPackedRgb(hues[i], saturations[i], values[i]);
+        }
+        return rgb;
+    }
+
+    @Benchmark
+    public double[] packedRgbToHsvBulk() {
+        Colors.packedRgbToHsv(colors, hues, saturations, values);
+        return hues;
+    }
+
+    @Benchmark
+    public int[] hexToPackedRgbBulk() {
+        Colors.hexToPackedRgb(hexColors, rgb);
+        return rgb;
+    }
+
+    @Benchmark
+    public int[] hexToRgbPerValue() {
+        for (int i = 0; i < SIZE; i++) {
+            int[] components = Colors.hexToRgb(hexColors[i]);
+            rgb[i] = (components[0] << 16) | (components[1] << 8) | components[2];
+        }
+        return rgb;
+    }
+}
@@ -0,0 +1,71 @@
+package ansicolors.benchmark;
+
+import ansicolors.Colors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares passing colors around as hex Strings or {@code int[]} components against {@link Colors.Color}
+ * references, for a hot loop that writes the foreground sequence of one of 64 colors per cell.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColorBenchmark {
+    private static final int SIZE = 64;
+    private static final int MASK = SIZE - 1;
+
+    private final String[] hexColors = new String[SIZE];
+    private final int[][] components = new int[SIZE][];
+    private final Colors.Color[] colors = new Colors.Color[SIZE];
+    private final StringBuilder cell = new StringBuilder(64);
+    private int next;
+
+    @Setup
+    public void setup(TrueColor trueColor) {
+        Random random = new Random(42);
+        for (int i = 0; i < SIZE; i++) {
+            int rgb = random.nextInt(1 << 24);
+            hexColors[i] = String.format("#%06x", rgb);
+            components[i] = Colors.intToRgb(rgb);
+            colors[i] = Colors.color(rgb);
+        }
+    }
+
+    private int next() {
+        return next = (next + 1) & MASK;
+    }
+
+    @Benchmark
+    public StringBuilder hexString() {
+        cell.setLength(0);
+        return cell.append(Colors.fg(hexColors[next()])).append('x');
+    }
+
+    @Benchmark
+    public StringBuilder componentArray() {
+        cell.setLength(0);
+        int[] rgb = components[next()];
+        return cell.append(Colors.fg(rgb[0], rgb[1], rgb[2])).append('x');
+    }
+
+    @Benchmark
+    public StringBuilder color() {
+        cell.setLength(0);
+        return cell.append(colors[next()].fg()).append('x');
+    }
+}
@@ -0,0 +1,100 @@
+package ansicolors.benchmark;
+
+import ansicolors.Colors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.SimpleFormatter;
+
+/**
+ * Formats log records in records per second, comparing {@link Colors.ColorFormatter} against a formatter that calls
+ * {@code Colors.fg(...)} and {@code String.format} for every record and against the plain {@link SimpleFormatter}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColorFormatterBenchmark {
+    private static final int SIZE = 1024;
+    private static final int MASK = SIZE - 1;
+
+    @Param({"TRUECOLOR", "NONE"})
+    public String depth;
+
+    private final LogRecord[] records = new LogRecord[SIZE];
+    private final Formatter colorFormatter = new Colors.ColorFormatter();
+    private final Formatter perRecordColors = new PerRecordColors();
+    private final Formatter simpleFormatter = new SimpleFormatter();
+    private int next;
+
+    @Setup
+    public void setup() {
+        Colors.setColorDepth(Colors.ColorDepth.valueOf(depth));
+        Random random = new Random(42);
+        Level[] levels = {Level.SEVERE, Level.WARNING, Level.INFO, Level.INFO, Level.INFO, Level.FINE};
+        for (int i = 0; i < SIZE; i++) {
+            LogRecord record = new LogRecord(levels[random.nextInt(levels.length)],
+                    "Processed request " + random.nextInt(100000) + " in " + random.nextInt(1000) + " ms");
+            record.setLoggerName("com.example.worker" + random.nextInt(16) + ".RequestHandler");
+            records[i] = record;
+        }
+        System.out.printf("%n%s", colorFormatter.format(records[0]));
+    }
+
+    private LogRecord next() {
+        return records[next = (next + 1) & MASK];
+    }
+
+    @Benchmark
+    public String colorFormatter() {
+        return colorFormatter.format(next());
+    }
+
+    @Benchmark
+    public String perRecordColors() {
+        return perRecordColors.format(next());
+    }
+
+    @Benchmark
+    public String simpleFormatter() {
+        return simpleFormatter.format(next());
+    }
+
+    /**
+     * The usual hand-written formatter: builds the level sequences for every record.
+     */
+    private static final class PerRecordColors extends Formatter {
+        @Override
+        public String format(LogRecord record) {
+            String color;
+            if (record.getLevel().intValue() >= Level.SEVERE.intValue()) {
+                color = Colors.style().fg((short) 9).bold().sequence();
+            } else if (record.getLevel().intValue() >= Level.WARNING.intValue()) {
+                color = Colors.fg((short) 11);
+            } else if (record.getLevel().intValue() >= Level.INFO.intValue()) {
+                color = Colors.fg((short) 2);
+            } else {
+                color = Colors.fg((short) 8);
+            }
+            return String.format("%1$tF %1$tT.%1$tL %2$s%3$-7s%4$s %5$s: %6$s%n", record.getMillis(), color,
+                    record.getLevel().getLocalizedName(), Colors.reset(), record.getLoggerName(),
+                    formatMessage(record));
+        }
+    }
+}
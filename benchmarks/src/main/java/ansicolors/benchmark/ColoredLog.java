@@ -0,0 +1,35 @@
+package ansicolors.benchmark;
+
+import ansicolors.Colors;
+
+import java.util.Random;
+
+/**
+ * Generates log lines with colored levels and worker names, like a service writes to its console.
+ */
+final class ColoredLog {
+    private ColoredLog() {
+    }
+
+    /**
+     * @param size Number of characters
+     * @return A colored log that is cut off at the given size, using the current color depth
+     */
+    static String generate(int size) {
+        Random random = new Random(42);
+        String[] levels = {
+                Colors.fg((short) 2) + "INFO " + Colors.reset(),
+                Colors.style().fg("#ffcc00").bold() + "WARN " + Colors.reset(),
+                Colors.sgr(Colors.BOLD, Colors.rgbColor(0xff0000), Colors.DEFAULT_COLOR) + "ERROR" + Colors.reset()
+        };
+        StringBuilder log = new StringBuilder(size + 256);
+        while (log.length() < size) {
+            log.append(levels[random.nextInt(levels.length)]).append(' ')
+                    .append(Colors.fg(random.nextInt(1 << 24))).append("worker-").append(random.nextInt(16))
+                    .append(Colors.reset()).append(" processed request ").append(random.nextInt(100000))
+                    .append(" in ").append(random.nextInt(1000)).append(" ms\n");
+        }
+        log.setLength(size);
+        return log.toString();
+    }
+}
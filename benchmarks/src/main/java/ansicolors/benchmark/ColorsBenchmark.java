@@ -0,0 +1,173 @@
+package ansicolors.benchmark;
+
+import ansicolors.Colors;
+import ansicolors.LegacyColors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Covers every public entry point of {@link Colors}.
+ * <p>
+ * Inputs are cycled through a fixed set of random colors so the JIT cannot fold the result.
+ * Run through {@link BenchmarkMain} to get the allocation rate from the gc profiler alongside the throughput.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColorsBenchmark {
+    private static final int SIZE = 1024;
+    private static final int MASK = SIZE - 1;
+
+    private final short[] indexes = new short[SIZE];
+    private final int[] reds = new int[SIZE];
+    private final int[] greens = new int[SIZE];
+    private final int[] blues = new int[SIZE];
+    private final int[] values = new int[SIZE];
+    private final String[] hexColors = new String[SIZE];
+    private final double[] hues = new double[SIZE];
+    private final double[] saturations = new double[SIZE];
+    private final double[] brightnesses = new double[SIZE];
+    private final StringBuilder line = new StringBuilder(64);
+    private final ByteBuffer bytes = ByteBuffer.allocateDirect(64);
+    private int next;
+
+    @Setup
+    public void setup(TrueColor trueColor) {
+        Random random = new Random(42);
+        for (int i = 0; i < SIZE; i++) {
+            indexes[i] = (short) random.nextInt(256);
+            reds[i] = random.nextInt(256);
+            greens[i] = random.nextInt(256);
+            blues[i] = random.nextInt(256);
+            values[i] = (reds[i] << 16) | (greens[i] << 8) | blues[i];
+            hexColors[i] = String.format("#%06x", values[i]);
+            hues[i] = random.nextDouble() * 360;
+            saturations[i] = random.nextDouble();
+            brightnesses[i] = random.nextDouble();
+        }
+    }
+
+    private int next() {
+        return next = (next + 1) & MASK;
+    }
+
+    @Benchmark
+    public String reset() {
+        return Colors.reset();
+    }
+
+    @Benchmark
+    public String fgIndex() {
+        return Colors.fg(indexes[next()]);
+    }
+
+    @Benchmark
+    public String bgIndex() {
+        return Colors.bg(indexes[next()]);
+    }
+
+    @Benchmark
+    public String fgValue() {
+        return Colors.fg(values[next()]);
+    }
+
+    @Benchmark
+    public String bgValue() {
+        return Colors.bg(values[next()]);
+    }
+
+    @Benchmark
+    public String fgRgb() {
+        int i = next();
+        return Colors.fg(reds[i], greens[i], blues[i]);
+    }
+
+    @Benchmark
+    public String bgRgb() {
+        int i = next();
+        return Colors.bg(reds[i], greens[i], blues[i]);
+    }
+
+    @Benchmark
+    public String fgHex() {
+        return Colors.fg(hexColors[next()]);
+    }
+
+    @Benchmark
+    public String bgHex() {
+        return Colors.bg(hexColors[next()]);
+    }
+
+    @Benchmark
+    public String fgHsv() {
+        int i = next();
+        return Colors.fg(hues[i], saturations[i], brightnesses[i]);
+    }
+
+    @Benchmark
+    public String bgHsv() {
+        int i = next();
+        return Colors.bg(hues[i], saturations[i], brightnesses[i]);
+    }
+
+    @Benchmark
+    public int[] intToRgb() {
+        return Colors.intToRgb(values[next()]);
+    }
+
+    @Benchmark
+    public int[] hexToRgb() {
+        return Colors.hexToRgb(hexColors[next()]);
+    }
+
+    @Benchmark
+    public int hexToPackedRgb() {
+        return Colors.hexToPackedRgb(hexColors[next()]);
+    }
+
+    @Benchmark
+    public int hsvToPackedRgb() {
+        int i = next();
+        return Colors.hsvToPackedRgb(hues[i], saturations[i], brightnesses[i]);
+    }
+
+    @Benchmark
+    public StringBuilder appendFgRgb() {
+        int i = next();
+        line.setLength(0);
+        return Colors.appendFg(line, reds[i], greens[i], blues[i]);
+    }
+
+    @Benchmark
+    public StringBuilder appendBgIndex() {
+        line.setLength(0);
+        return Colors.appendBg(line, indexes[next()]);
+    }
+
+    @Benchmark
+    public int putFgValue() {
+        bytes.clear();
+        return Colors.putFg(bytes, values[next()]);
+    }
+
+    @Benchmark
+    public String fgRgbLegacy() {
+        int i = next();
+        return LegacyColors.fg(reds[i], greens[i], blues[i]);
+    }
+}
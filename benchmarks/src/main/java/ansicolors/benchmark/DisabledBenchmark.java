@@ -0,0 +1,93 @@
+package ansicolors.benchmark;
+
+import ansicolors.Colors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shows that with {@code -Dansicolors.disabled=true} every method costs the same as returning a constant String.
+ * The inputs still change on every call, so only the disabled switch lets the JIT drop the work.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dansicolors.disabled=true")
+public class DisabledBenchmark {
+    private static final int SIZE = 1024;
+    private static final int MASK = SIZE - 1;
+
+    private final int[] values = new int[SIZE];
+    private final String[] hexColors = new String[SIZE];
+    private final Colors.Style style = Colors.style().fg(255, 204, 0).bg(40, 40, 40).bold();
+    private final StringBuilder line = new StringBuilder(64);
+    private int next;
+
+    @Setup
+    public void setup() {
+        if (!Colors.fg(0xffcc00).isEmpty()) {
+            throw new IllegalStateException("Colors are not disabled");
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < SIZE; i++) {
+            values[i] = random.nextInt(1 << 24);
+            hexColors[i] = String.format("#%06x", values[i]);
+        }
+    }
+
+    private int next() {
+        return next = (next + 1) & MASK;
+    }
+
+    @Benchmark
+    public String constant() {
+        next();
+        return "";
+    }
+
+    @Benchmark
+    public String fgValue() {
+        return Colors.fg(values[next()]);
+    }
+
+    @Benchmark
+    public String fgRgb() {
+        int value = values[next()];
+        return Colors.fg(Colors.red(value), Colors.green(value), Colors.blue(value));
+    }
+
+    @Benchmark
+    public String bgHex() {
+        return Colors.bg(hexColors[next()]);
+    }
+
+    @Benchmark
+    public String reset() {
+        next();
+        return Colors.reset();
+    }
+
+    @Benchmark
+    public String style() {
+        next();
+        return style.sequence();
+    }
+
+    @Benchmark
+    public StringBuilder appendFg() {
+        line.setLength(0);
+        return Colors.appendFg(line, values[next()]);
+    }
+}
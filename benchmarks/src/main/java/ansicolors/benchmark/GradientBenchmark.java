@@ -0,0 +1,61 @@
+package ansicolors.benchmark;
+
+import ansicolors.Colors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a cached 100 step {@link Colors#fgGradient(int, int, int, Colors.ColorSpace)} against calling
+ * {@link Colors#fg(double, double, double)} for every step, and measures computing gradients that are not cached.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GradientBenchmark {
+    private static final int STEPS = 100;
+
+    @Param({"RGB", "HSV", "OKLAB"})
+    public Colors.ColorSpace space;
+
+    private final String[] sequences = new String[STEPS];
+    private int from;
+
+    @Benchmark
+    public String[] cachedGradient(TrueColor trueColor) {
+        return Colors.fgGradient(0x0000ff, 0xff0000, STEPS, space);
+    }
+
+    @Benchmark
+    public String[] uncachedGradient(TrueColor trueColor) {
+        // More distinct gradients than the cache holds, so every call computes its gradient
+        from = (from + 1) & 0xFFF;
+        return Colors.fgGradient(from, 0xff0000, STEPS, space);
+    }
+
+    @Benchmark
+    public int[] uncachedColors() {
+        from = (from + 1) & 0xFFF;
+        return Colors.gradient(from, 0xff0000, STEPS, space);
+    }
+
+    @Benchmark
+    public String[] hsvCalls(TrueColor trueColor) {
+        for (int i = 0; i < STEPS; i++) {
+            sequences[i] = Colors.fg(240.0 - 240.0 * i / (STEPS - 1), 1.0, 1.0);
+        }
+        return sequences;
+    }
+}
@@ -0,0 +1,65 @@
+package ansicolors.benchmark;
+
+import ansicolors.Colors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders a 640 x 480 image with {@link Colors#halfBlocks(int[], int, int)} and with a foreground and background
+ * sequence for every cell. The image has smooth areas and a few sharp edges like a thumbnail.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HalfBlockBenchmark {
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+
+    private final int[] image = new int[WIDTH * HEIGHT];
+
+    @Setup
+    public void setup(TrueColor trueColor) {
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                // Bands of 8 pixels with the same color, and stripes with sharp edges
+                int hue = x / 8 * 8 * 360 / WIDTH;
+                double value = (y / 40) % 2 == 0 ? 1.0 : 0.6;
+                image[y * WIDTH + x] = 0xFF000000 | Colors.hsvToPackedRgb(hue, 1.0, value);
+            }
+        }
+        System.out.printf("%nHalf blocks: %d chars, sequences per cell: %d chars%n",
+                halfBlocks().length(), perCell().length());
+    }
+
+    @Benchmark
+    public String halfBlocks() {
+        return Colors.halfBlocks(image, WIDTH, HEIGHT);
+    }
+
+    @Benchmark
+    public String perCell() {
+        StringBuilder out = new StringBuilder();
+        for (int y = 0; y < HEIGHT; y += 2) {
+            for (int x = 0; x < WIDTH; x++) {
+                out.append(Colors.fg(image[y * WIDTH + x] & 0xFFFFFF))
+                        .append(Colors.bg(image[(y + 1) * WIDTH + x] & 0xFFFFFF))
+                        .append('\u2580');
+            }
+            out.append(Colors.reset()).append('\n');
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,68 @@
+package ansicolors.benchmark;
+
+import ansicolors.Colors;
+import ansicolors.LegacyColors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the single-pass hex parser against the original regex, substring and parseInt path.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HexParserBenchmark {
+    private static final int SIZE = 1024;
+    private static final int MASK = SIZE - 1;
+
+    private final String[] longForms = new String[SIZE];
+    private final String[] shortForms = new String[SIZE];
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        for (int i = 0; i < SIZE; i++) {
+            longForms[i] = String.format("#%06x", random.nextInt(1 << 24));
+            shortForms[i] = String.format("#%03x", random.nextInt(1 << 12));
+        }
+    }
+
+    private int next() {
+        return next = (next + 1) & MASK;
+    }
+
+    @Benchmark
+    public int[] regex() {
+        return LegacyColors.hexToRgb(longForms[next()]);
+    }
+
+    @Benchmark
+    public int[] hexToRgb() {
+        return Colors.hexToRgb(longForms[next()]);
+    }
+
+    @Benchmark
+    public int hexToPackedRgb() {
+        return Colors.hexToPackedRgb(longForms[next()]);
+    }
+
+    @Benchmark
+    public int hexToPackedRgbShortForm() {
+        return Colors.hexToPackedRgb(shortForms[next()]);
+    }
+}
@@ -0,0 +1,53 @@
+package ansicolors.benchmark;
+
+import ansicolors.Colors;
+import ansicolors.LegacyColors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the precomputed indexed color table against the original String.format path.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndexedColorBenchmark {
+    private short index;
+
+    private short nextIndex() {
+        index = (short) ((index + 1) & 0xFF);
+        return index;
+    }
+
+    @Benchmark
+    public String fgTable(TrueColor trueColor) {
+        return Colors.fg(nextIndex());
+    }
+
+    @Benchmark
+    public String bgTable(TrueColor trueColor) {
+        return Colors.bg(nextIndex());
+    }
+
+    @Benchmark
+    public String fgLegacy() {
+        return LegacyColors.fg(nextIndex());
+    }
+
+    @Benchmark
+    public String bgLegacy() {
+        return LegacyColors.bg(nextIndex());
+    }
+}
@@ -0,0 +1,65 @@
+package ansicolors.benchmark;
+
+import ansicolors.Colors;
+import ansicolors.LegacyColors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves color names from a config file, comparing {@link Colors#fgNamed(String)} against a {@link HashMap} of hex
+ * Strings that are passed to the regex based legacy parser or to {@link Colors#fg(String)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NamedColorBenchmark {
+    private static final String[] NAMES = {
+            "orange", "slategray", "red", "gold", "steelblue", "tomato", "darkseagreen", "lightgoldenrodyellow",
+            "navy", "crimson", "teal", "orchid", "khaki", "mediumvioletred", "white", "dimgray"
+    };
+    private static final int MASK = NAMES.length - 1;
+
+    private final Map<String, String> hexColors = new HashMap<>();
+    private int next;
+
+    @Setup
+    public void setup(TrueColor trueColor) {
+        for (String name : NAMES) {
+            hexColors.put(name, String.format("#%06x", Colors.namedColor(name).rgb()));
+        }
+    }
+
+    private String next() {
+        return NAMES[next = (next + 1) & MASK];
+    }
+
+    @Benchmark
+    public String hashMapRegex() {
+        return LegacyColors.fg(hexColors.get(next()));
+    }
+
+    @Benchmark
+    public String hashMapHex() {
+        return Colors.fg(hexColors.get(next()));
+    }
+
+    @Benchmark
+    public String fgNamed() {
+        return Colors.fgNamed(next());
+    }
+}
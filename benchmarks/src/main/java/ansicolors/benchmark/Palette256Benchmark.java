@@ -0,0 +1,105 @@
+package ansicolors.benchmark;
+
+import ansicolors.Colors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link Colors#toIndex256(int, int, int)}, which is computed from the color cube and the greys, against a
+ * brute-force search over the palette, and the 256 and 16 color output modes against truecolor.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Palette256Benchmark {
+    private static final int SIZE = 1024;
+    private static final int MASK = SIZE - 1;
+
+    private final int[] colors = new int[SIZE];
+    private final int[] palette = new int[256];
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        for (int i = 0; i < SIZE; i++) {
+            colors[i] = random.nextInt(1 << 24);
+        }
+        for (int i = 0; i < palette.length; i++) {
+            palette[i] = Colors.indexToPackedRgb(i);
+        }
+        for (int color : colors) {
+            if (Colors.toIndex256(Colors.red(color), Colors.green(color), Colors.blue(color)) != bruteForce(color)) {
+                throw new IllegalStateException("Lookup differs from brute force for " + Integer.toHexString(color));
+            }
+        }
+    }
+
+    private int next() {
+        return next = (next + 1) & MASK;
+    }
+
+    private int bruteForce(int rgb) {
+        int best = 16;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int i = 16; i < palette.length; i++) {
+            int red = Colors.red(rgb) - Colors.red(palette[i]);
+            int green = Colors.green(rgb) - Colors.green(palette[i]);
+            int blue = Colors.blue(rgb) - Colors.blue(palette[i]);
+            int distance = red * red + green * green + blue * blue;
+            if (distance < bestDistance) {
+                best = i;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    @Benchmark
+    public int nearestIndex() {
+        int color = colors[next()];
+        return Colors.toIndex256(Colors.red(color), Colors.green(color), Colors.blue(color));
+    }
+
+    @Benchmark
+    public int bruteForce() {
+        return bruteForce(colors[next()]);
+    }
+
+    @Benchmark
+    public String fg(Depth depth) {
+        return Colors.fg(colors[next()]);
+    }
+
+    @State(Scope.Benchmark)
+    public static class Depth {
+        @Param({"TRUECOLOR", "INDEXED_256", "BASIC_16", "NONE"})
+        public Colors.ColorDepth depth;
+
+        @Setup
+        public void setup() {
+            Colors.setColorDepth(depth);
+        }
+
+        @TearDown
+        public void tearDown() {
+            Colors.setColorDepth(Colors.ColorDepth.TRUECOLOR);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package ansicolors.benchmark;
+
+import ansicolors.Colors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link Colors#toIndex256Perceptual(int, int, int)} against a brute-force search in OKLab and the RGB
+ * distance based {@link Colors#toIndex256(int, int, int)}.
+ * <p>
+ * {@code image} repeats a small set of colors like a picture does, {@code random} mostly hits colors that were not
+ * looked up before. The setup prints how far the chosen entries are from the requested colors in OKLab for both
+ * metrics.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PerceptualPaletteBenchmark {
+    private static final int IMAGE_SIZE = 4096;
+    private static final int IMAGE_MASK = IMAGE_SIZE - 1;
+
+    private final int[] image = new int[IMAGE_SIZE];
+    private final double[][] palette = new double[256][];
+    private final Random random = new Random(42);
+    private int next;
+
+    @Setup
+    public void setup() {
+        for (int i = 16; i < palette.length; i++) {
+            palette[i] = oklab(Colors.indexToPackedRgb(i));
+        }
+        for (int i = 0; i < IMAGE_SIZE; i++) {
+            image[i] = random.nextInt(1 << 24);
+        }
+        for (int color : image) {
+            if (perceptual(color) != bruteForce(color)) {
+                throw new IllegalStateException("Lookup differs from brute force for " + Integer.toHexString(color));
+            }
+        }
+        printAccuracy();
+    }
+
+    /**
+     * Prints the mean and maximum OKLab distance between a grid of colors and the palette entries chosen for them.
+     */
+    private void printAccuracy() {
+        double rgbSum = 0;
+        double rgbMax = 0;
+        double perceptualSum = 0;
+        double perceptualMax = 0;
+        int differ = 0;
+        int count = 0;
+        for (int red = 0; red < 256; red += 5) {
+            for (int green = 0; green < 256; green += 5) {
+                for (int blue = 0; blue < 256; blue += 5) {
+                    double[] color = oklab(Colors.pack(red, green, blue));
+                    int rgbIndex = Colors.toIndex256(red, green, blue);
+                    int perceptualIndex = Colors.toIndex256Perceptual(red, green, blue);
+                    double rgbError = Math.sqrt(distance(color, palette[rgbIndex]));
+                    double perceptualError = Math.sqrt(distance(color, palette[perceptualIndex]));
+                    rgbSum += rgbError;
+                    rgbMax = Math.max(rgbMax, rgbError);
+                    perceptualSum += perceptualError;
+                    perceptualMax = Math.max(perceptualMax, perceptualError);
+                    differ += rgbIndex != perceptualIndex ? 1 : 0;
+                    count++;
+                }
+            }
+        }
+        System.out.printf("%nOKLab error of %d colors, %d matched differently%n", count, differ);
+        System.out.printf("  RGB metric:   mean %.4f, max %.4f%n", rgbSum / count, rgbMax);
+        System.out.printf("  OKLab metric: mean %.4f, max %.4f%n", perceptualSum / count, perceptualMax);
+    }
+
+    private static double[] oklab(int rgb) {
+        double red = linear(Colors.red(rgb));
+        double green = linear(Colors.green(rgb));
+        double blue = linear(Colors.blue(rgb));
+        double l = Math.cbrt(0.4122214708 * red + 0.5363325363 * green + 0.0514459929 * blue);
+        double m = Math.cbrt(0.2119034982 * red + 0.6806995451 * green + 0.1073969566 * blue);
+        double s = Math.cbrt(0.0883024619 * red + 0.2817188376 * green + 0.6299787005 * blue);
+        return new double[]{
+                0.2104542553 * l + 0.7936177850 * m - 0.0040720468 * s,
+                1.9779984951 * l - 2.4285922050 * m + 0.4505937099 * s,
+                0.0259040371 * l + 0.7827717662 * m - 0.8086757660 * s
+        };
+    }
+
+    private static double linear(int component) {
+        double c = component / 255.0;
+        return c <= 0.04045 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4);
+    }
+
+    private static double distance(double[] x, double[] y) {
+        double lightness = x[0] - y[0];
+        double a = x[1] - y[1];
+        double b = x[2] - y[2];
+        return lightness * lightness + a * a + b * b;
+    }
+
+    private int bruteForce(int rgb) {
+        double[] color = oklab(rgb);
+        int best = 16;
+        double bestDistance = Double.MAX_VALUE;
+        for (int i = 16; i < palette.length; i++) {
+            double distance = distance(color, palette[i]);
+            if (distance < bestDistance) {
+                best = i;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    private static int perceptual(int rgb) {
+        return Colors.toIndex256Perceptual(Colors.red(rgb), Colors.green(rgb), Colors.blue(rgb));
+    }
+
+    @Benchmark
+    public int image() {
+        return perceptual(image[next = (next + 1) & IMAGE_MASK]);
+    }
+
+    @Benchmark
+    public int random() {
+        return perceptual(random.nextInt(1 << 24));
+    }
+
+    @Benchmark
+    public int rgbMetric() {
+        int color = image[next = (next + 1) & IMAGE_MASK];
+        return Colors.toIndex256(Colors.red(color), Colors.green(color), Colors.blue(color));
+    }
+
+    @Benchmark
+    public int bruteForce() {
+        return bruteForce(image[next = (next + 1) & IMAGE_MASK]);
+    }
+}
@@ -0,0 +1,101 @@
+package ansicolors.benchmark;
+
+import ansicolors.Colors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares uncached RGB sequences against a shared {@link Colors.SequenceCache} under 1, 4 and 16 threads.
+ * The working set of 2048 colors resembles a dashboard that reuses a few thousand colors.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SequenceCacheBenchmark {
+    private static final int SIZE = 2048;
+    private static final int MASK = SIZE - 1;
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+        final int[] colors = new int[SIZE];
+        Colors.SequenceCache cache;
+
+        @Setup
+        public void setup(TrueColor trueColor) {
+            Random random = new Random(42);
+            for (int i = 0; i < SIZE; i++) {
+                colors[i] = random.nextInt(1 << 24);
+            }
+            cache = new Colors.SequenceCache(4096);
+        }
+
+        @TearDown
+        public void report() {
+            long hits = cache.hits();
+            long lookups = hits + cache.misses();
+            if (lookups > 0) {
+                System.out.printf("%nCache hit rate: %.4f (%d lookups)%n", (double) hits / lookups, lookups);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next() {
+            return next = (next + 1) & MASK;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String uncached1(Shared shared, Cursor cursor) {
+        return Colors.fg(shared.colors[cursor.next()]);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String cached1(Shared shared, Cursor cursor) {
+        return shared.cache.fg(shared.colors[cursor.next()]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String uncached4(Shared shared, Cursor cursor) {
+        return Colors.fg(shared.colors[cursor.next()]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String cached4(Shared shared, Cursor cursor) {
+        return shared.cache.fg(shared.colors[cursor.next()]);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public String uncached16(Shared shared, Cursor cursor) {
+        return Colors.fg(shared.colors[cursor.next()]);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public String cached16(Shared shared, Cursor cursor) {
+        return shared.cache.fg(shared.colors[cursor.next()]);
+    }
+}
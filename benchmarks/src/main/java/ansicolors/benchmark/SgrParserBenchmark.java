@@ -0,0 +1,77 @@
+package ansicolors.benchmark;
+
+import ansicolors.Colors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Decodes the colors of a log of about a million characters with {@link Colors.SgrParser} and with a regular
+ * expression that splits the parameters, so operations per second are roughly megabytes of input per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SgrParserBenchmark {
+    private static final int SIZE = 1 << 20;
+    private static final Pattern SGR = Pattern.compile("\u001B\\[([;\\d]*)m");
+
+    private String text;
+    private char[] chars;
+    private byte[] bytes;
+    private final char[] charOutput = new char[SIZE];
+    private final byte[] byteOutput = new byte[SIZE];
+    private long checksum;
+    private final Colors.SgrParser parser = new Colors.SgrParser(
+            (start, end, attributes, foreground, background) -> checksum += end - start + foreground);
+
+    @Setup
+    public void setup(TrueColor trueColor) {
+        text = ColoredLog.generate(SIZE);
+        chars = text.toCharArray();
+        bytes = text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public long parseChars() {
+        parser.reset();
+        parser.parse(chars, 0, chars.length, charOutput, 0);
+        parser.flush();
+        return checksum;
+    }
+
+    @Benchmark
+    public long parseBytes() {
+        parser.reset();
+        parser.parse(bytes, 0, bytes.length, byteOutput, 0);
+        parser.flush();
+        return checksum;
+    }
+
+    @Benchmark
+    public long regex() {
+        long sum = 0;
+        Matcher matcher = SGR.matcher(text);
+        while (matcher.find()) {
+            for (String parameter : matcher.group(1).split(";")) {
+                sum += parameter.isEmpty() ? 0 : Integer.parseInt(parameter);
+            }
+        }
+        return sum;
+    }
+}
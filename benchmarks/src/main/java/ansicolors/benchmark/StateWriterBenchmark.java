@@ -0,0 +1,77 @@
+package ansicolors.benchmark;
+
+import ansicolors.Colors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders a 200 x 60 heatmap, once with full fg/bg sequences per cell and once through
+ * {@link Colors.AnsiStateWriter}. The number of characters per frame is printed during setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StateWriterBenchmark {
+    private static final int WIDTH = 200;
+    private static final int HEIGHT = 60;
+    private static final int LEVELS = 12;
+
+    private final int[] heat = new int[WIDTH * HEIGHT];
+    private final int[] palette = new int[LEVELS];
+    private final StringBuilder frame = new StringBuilder(WIDTH * HEIGHT * 40);
+
+    @Setup
+    public void setup(TrueColor trueColor) {
+        for (int i = 0; i < LEVELS; i++) {
+            palette[i] = Colors.hsvToPackedRgb(240.0 - 240.0 * i / (LEVELS - 1), 1.0, 1.0);
+        }
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                double value = (Math.sin(x / 17.0) * Math.cos(y / 7.0) + 1) / 2;
+                heat[y * WIDTH + x] = palette[Math.min(LEVELS - 1, (int) (value * LEVELS))];
+            }
+        }
+        System.out.printf("%nFull sequences: %d chars per frame, state writer: %d chars per frame%n",
+                fullSequences().length(), stateWriter().length());
+    }
+
+    @Benchmark
+    public StringBuilder fullSequences() {
+        frame.setLength(0);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int color = heat[y * WIDTH + x];
+                frame.append(Colors.fg(0xffffff)).append(Colors.bg(color)).append('.');
+            }
+            frame.append(Colors.reset()).append('\n');
+        }
+        return frame;
+    }
+
+    @Benchmark
+    public StringBuilder stateWriter() {
+        frame.setLength(0);
+        Colors.AnsiStateWriter writer = new Colors.AnsiStateWriter(frame);
+        int foreground = Colors.rgbColor(0xffffff);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                writer.style(0, foreground, Colors.rgbColor(heat[y * WIDTH + x])).write('.');
+            }
+            writer.reset().write('\n');
+        }
+        return frame;
+    }
+}
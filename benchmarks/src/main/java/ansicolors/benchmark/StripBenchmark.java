@@ -0,0 +1,75 @@
+package ansicolors.benchmark;
+
+import ansicolors.Colors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Strips a colored log of about a million characters with {@link Colors.AnsiStripper} and with the regular
+ * expressions commonly used for it, so operations per second are roughly megabytes of input per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StripBenchmark {
+    private static final int SIZE = 1 << 20;
+    private static final Pattern SGR = Pattern.compile("\u001B\\[[;\\d]*m");
+    private static final Pattern CSI_OR_OSC = Pattern.compile("\u001B\\[[0-?]*[ -/]*[@-~]|\u001B\\][^\u0007\u001B]*(\u0007|\u001B\\\\)");
+
+    private String text;
+    private char[] chars;
+    private byte[] bytes;
+    private final char[] charOutput = new char[SIZE];
+    private final byte[] byteOutput = new byte[SIZE * 3];
+    private final Colors.AnsiStripper stripper = new Colors.AnsiStripper();
+
+    @Setup
+    public void setup(TrueColor trueColor) {
+        text = ColoredLog.generate(SIZE);
+        chars = text.toCharArray();
+        bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (!Colors.stripAnsi(text).equals(SGR.matcher(text).replaceAll(""))) {
+            throw new IllegalStateException("Stripper and regex differ");
+        }
+    }
+
+    @Benchmark
+    public String stripString() {
+        return Colors.stripAnsi(text);
+    }
+
+    @Benchmark
+    public int stripChars() {
+        return stripper.strip(chars, 0, chars.length, charOutput, 0);
+    }
+
+    @Benchmark
+    public int stripBytes() {
+        return stripper.strip(bytes, 0, bytes.length, byteOutput, 0);
+    }
+
+    @Benchmark
+    public String sgrRegex() {
+        return SGR.matcher(text).replaceAll("");
+    }
+
+    @Benchmark
+    public String csiOrOscRegex() {
+        return CSI_OR_OSC.matcher(text).replaceAll("");
+    }
+}
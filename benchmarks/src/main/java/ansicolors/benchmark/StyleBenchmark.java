@@ -0,0 +1,47 @@
+package ansicolors.benchmark;
+
+import ansicolors.Colors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a precompiled fg + bg + bold {@link Colors.Style} against building the separate sequences for every cell.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StyleBenchmark {
+    private static final String BOLD = "\u001B[1m";
+
+    private final Colors.Style style = Colors.style().fg(255, 204, 0).bg(40, 40, 40).bold();
+    private final StringBuilder cell = new StringBuilder(64);
+
+    @Benchmark
+    public StringBuilder precompiledStyle(TrueColor trueColor) {
+        cell.setLength(0);
+        return cell.append(style.sequence()).append('x');
+    }
+
+    @Benchmark
+    public StringBuilder separateSequences(TrueColor trueColor) {
+        cell.setLength(0);
+        return cell.append(BOLD).append(Colors.fg(255, 204, 0)).append(Colors.bg(40, 40, 40)).append('x');
+    }
+
+    @Benchmark
+    public String buildStyle(TrueColor trueColor) {
+        return Colors.style().fg(255, 204, 0).bg(40, 40, 40).bold().sequence();
+    }
+}
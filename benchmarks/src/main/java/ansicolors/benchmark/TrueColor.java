@@ -0,0 +1,20 @@
+package ansicolors.benchmark;
+
+import ansicolors.Colors;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Turns on truecolor for benchmarks that measure colored output. Forked benchmark JVMs have no console, so colors
+ * would be detected as turned off and every method would return an empty String.
+ * <p>
+ * Benchmarks inject it into their {@code @Setup} method or into the benchmark methods, JMH then sets it up first.
+ */
+@State(Scope.Benchmark)
+public class TrueColor {
+    @Setup
+    public void setup() {
+        Colors.setColorDepth(Colors.ColorDepth.TRUECOLOR);
+    }
+}
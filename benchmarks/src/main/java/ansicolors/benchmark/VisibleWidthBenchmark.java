@@ -0,0 +1,100 @@
+package ansicolors.benchmark;
+
+import ansicolors.Colors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lays out a table of 100,000 rows with three colored cells each, once by measuring the stripped text with
+ * {@code String.length()} and once with {@link Colors#visibleWidth(CharSequence)} and the padding helpers.
+ * Every fourth name is in CJK characters, which the stripped length gets wrong.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VisibleWidthBenchmark {
+    private static final int ROWS = 100000;
+    private static final int NAME_WIDTH = 16;
+    private static final int STATUS_WIDTH = 8;
+    private static final int TIME_WIDTH = 8;
+
+    private final String[] names = new String[ROWS];
+    private final String[] statuses = new String[ROWS];
+    private final String[] times = new String[ROWS];
+    private final StringBuilder table = new StringBuilder(ROWS * 80);
+
+    @Setup
+    public void setup(TrueColor trueColor) {
+        Random random = new Random(42);
+        String[] status = {
+                Colors.fg((short) 2) + "ok" + Colors.reset(),
+                Colors.style().fg("#ffcc00").bold() + "slow" + Colors.reset(),
+                Colors.sgr(Colors.BOLD, Colors.rgbColor(0xff0000), Colors.DEFAULT_COLOR) + "failed" + Colors.reset()
+        };
+        for (int i = 0; i < ROWS; i++) {
+            String name = i % 4 == 0 ? "サービス-" + random.nextInt(100) : "service-" + random.nextInt(1000);
+            names[i] = Colors.fg(random.nextInt(1 << 24)) + name + Colors.reset();
+            statuses[i] = status[random.nextInt(status.length)];
+            times[i] = Colors.fg(0x808080) + random.nextInt(10000) + " ms" + Colors.reset();
+        }
+    }
+
+    @Benchmark
+    public StringBuilder strippedLength() {
+        table.setLength(0);
+        for (int i = 0; i < ROWS; i++) {
+            pad(names[i], NAME_WIDTH - Colors.stripAnsi(names[i]).length());
+            pad(statuses[i], STATUS_WIDTH - Colors.stripAnsi(statuses[i]).length());
+            spaces(TIME_WIDTH - Colors.stripAnsi(times[i]).length());
+            table.append(times[i]).append('\n');
+        }
+        return table;
+    }
+
+    @Benchmark
+    public StringBuilder visibleWidth() {
+        table.setLength(0);
+        for (int i = 0; i < ROWS; i++) {
+            Colors.appendPadRight(table, names[i], NAME_WIDTH);
+            Colors.appendPadRight(table, statuses[i], STATUS_WIDTH);
+            Colors.appendPadLeft(table, times[i], TIME_WIDTH).append('\n');
+        }
+        return table;
+    }
+
+    @Benchmark
+    public StringBuilder truncateAndPad() {
+        table.setLength(0);
+        for (int i = 0; i < ROWS; i++) {
+            Colors.appendPadRight(table, Colors.truncate(names[i], NAME_WIDTH / 2), NAME_WIDTH / 2);
+            Colors.appendPadRight(table, statuses[i], STATUS_WIDTH);
+            Colors.appendPadLeft(table, times[i], TIME_WIDTH).append('\n');
+        }
+        return table;
+    }
+
+    private void pad(String cell, int count) {
+        table.append(cell);
+        spaces(count);
+    }
+
+    private void spaces(int count) {
+        for (int i = 0; i < count; i++) {
+            table.append(' ');
+        }
+    }
+}
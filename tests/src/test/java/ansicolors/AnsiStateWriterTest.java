@@ -0,0 +1,62 @@
+package ansicolors;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that {@link Colors.AnsiStateWriter} writes only what changed between two styles.
+ */
+class AnsiStateWriterTest {
+    private final StringBuilder out = new StringBuilder();
+    private final Colors.AnsiStateWriter writer = new Colors.AnsiStateWriter(out);
+
+    @Test
+    void writesOnlyChanges() {
+        writer.style(Colors.BOLD, Colors.rgbColor(0xffcc00), Colors.DEFAULT_COLOR).write('a');
+        assertWritten("\u001B[1;38;2;255;204;0ma");
+
+        writer.style(Colors.BOLD, Colors.rgbColor(0xffcc00), Colors.DEFAULT_COLOR).write('b');
+        assertWritten("b");
+
+        writer.style(Colors.BOLD, Colors.indexedColor(1), Colors.DEFAULT_COLOR).write("cd");
+        assertWritten("\u001B[38;5;1mcd");
+
+        writer.style(0, Colors.indexedColor(1), Colors.indexedColor(236)).write('e');
+        assertWritten("\u001B[22;48;5;236me");
+    }
+
+    @Test
+    void resetWhenShorter() {
+        writer.style(Colors.BOLD | Colors.ITALIC, Colors.rgbColor(0x123456), Colors.rgbColor(0x654321)).write('a');
+        out.setLength(0);
+
+        writer.style(Colors.UNDERLINE, Colors.DEFAULT_COLOR, Colors.DEFAULT_COLOR).write('b');
+        assertWritten("\u001B[0;4mb");
+
+        writer.reset();
+        assertWritten("\u001B[0m");
+        writer.reset();
+        assertWritten("");
+    }
+
+    @Test
+    void styles() {
+        Colors.Style gold = Colors.style().fg("#ffcc00").bold();
+        writer.style(gold).write('a').style(gold).write('b').style(Colors.style()).write('c');
+        assertWritten(gold + "ab\u001B[0mc");
+    }
+
+    @Test
+    void invalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> writer.style(1 << 8, Colors.DEFAULT_COLOR, Colors.DEFAULT_COLOR));
+        assertThrows(IllegalArgumentException.class, () -> writer.style(0, 3 << 24, Colors.DEFAULT_COLOR));
+        assertWritten("");
+    }
+
+    private void assertWritten(String expected) {
+        assertEquals(expected, out.toString());
+        out.setLength(0);
+    }
+}
@@ -0,0 +1,101 @@
+package ansicolors;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Checks that {@link Colors.AnsiStripper} returns the same text no matter where the input is split.
+ */
+class AnsiStripperTest {
+    private static final String INPUT = "plain "
+            + "\u001B[1;38;5;220mbold gold\u001B[0m "
+            + "\u001B[38;2;255;204;0mtruecolor\u001B[m\ttab "
+            + "\u001B]0;title\u0007after bel "
+            + "\u001B]8;;https://example.com\u001B\\link\u001B]8;;\u001B\\ "
+            + "\u001BP1$r0m\u001B\\dcs "
+            + "\u001B7saved\u001B8 \u001B(Bcharset "
+            + "\u001B[2J\u001B[?25lcleared\n"
+            + "\u001B[31mcancel\u001B[1\u0018ed "
+            + "サービス 😀 café\r\n";
+    private static final String EXPECTED = "plain "
+            + "bold gold "
+            + "truecolor\ttab "
+            + "after bel "
+            + "link "
+            + "dcs "
+            + "saved charset "
+            + "cleared\n"
+            + "canceled "
+            + "サービス 😀 café\r\n";
+
+    @Test
+    void stripAnsi() {
+        assertEquals(EXPECTED, Colors.stripAnsi(INPUT));
+    }
+
+    @Test
+    void charSequenceAtEverySplit() {
+        for (int split = 0; split <= INPUT.length(); split++) {
+            Colors.AnsiStripper stripper = new Colors.AnsiStripper();
+            StringBuilder out = new StringBuilder();
+            stripper.strip(INPUT.subSequence(0, split), out);
+            stripper.strip(INPUT.subSequence(split, INPUT.length()), out);
+            assertEquals(EXPECTED, out.toString(), "split at " + split);
+            assertFalse(stripper.inSequence());
+        }
+    }
+
+    @Test
+    void charsAtEverySplit() {
+        char[] input = INPUT.toCharArray();
+        for (int split = 0; split <= input.length; split++) {
+            Colors.AnsiStripper stripper = new Colors.AnsiStripper();
+            char[] out = new char[input.length];
+            int length = stripper.strip(input, 0, split, out, 0);
+            length += stripper.strip(input, split, input.length - split, out, length);
+            assertEquals(EXPECTED, new String(out, 0, length), "split at " + split);
+        }
+    }
+
+    @Test
+    void bytesAtEverySplit() {
+        byte[] input = INPUT.getBytes(StandardCharsets.UTF_8);
+        for (int split = 0; split <= input.length; split++) {
+            Colors.AnsiStripper stripper = new Colors.AnsiStripper();
+            byte[] out = new byte[input.length];
+            int length = stripper.strip(input, 0, split, out, 0);
+            length += stripper.strip(input, split, input.length - split, out, length);
+            assertEquals(EXPECTED, new String(out, 0, length, StandardCharsets.UTF_8), "split at " + split);
+        }
+    }
+
+    @Test
+    void byteBuffersAtEverySplit() {
+        byte[] input = INPUT.getBytes(StandardCharsets.UTF_8);
+        for (int split = 0; split <= input.length; split++) {
+            Colors.AnsiStripper stripper = new Colors.AnsiStripper();
+            ByteBuffer out = ByteBuffer.allocateDirect(input.length);
+            stripper.strip(ByteBuffer.wrap(input, 0, split), out);
+            stripper.strip(ByteBuffer.wrap(input, split, input.length - split), out);
+            out.flip();
+            byte[] stripped = new byte[out.remaining()];
+            out.get(stripped);
+            assertEquals(EXPECTED, new String(stripped, StandardCharsets.UTF_8), "split at " + split);
+        }
+    }
+
+    @Test
+    void oneCharacterAtATime() {
+        Colors.AnsiStripper stripper = new Colors.AnsiStripper();
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < INPUT.length(); i++) {
+            stripper.strip(INPUT.subSequence(i, i + 1), out);
+        }
+        assertEquals(EXPECTED, out.toString());
+    }
+}
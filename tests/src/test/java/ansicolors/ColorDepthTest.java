@@ -0,0 +1,64 @@
+package ansicolors;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks how the color depth is detected from the environment and whether standard output is a terminal.
+ */
+class ColorDepthTest {
+    @Test
+    void noColor() {
+        assertEquals(Colors.ColorDepth.NONE, detect(true, "NO_COLOR", "1", "COLORTERM", "truecolor"));
+        assertEquals(Colors.ColorDepth.NONE, detect(true, "NO_COLOR", "1", "FORCE_COLOR", "3"));
+        // An empty value is ignored
+        assertEquals(Colors.ColorDepth.TRUECOLOR, detect(true, "NO_COLOR", "", "COLORTERM", "truecolor"));
+    }
+
+    @Test
+    void colorTerm() {
+        assertEquals(Colors.ColorDepth.TRUECOLOR, detect(true, "COLORTERM", "truecolor", "TERM", "xterm"));
+        assertEquals(Colors.ColorDepth.TRUECOLOR, detect(true, "COLORTERM", "24bit"));
+        assertEquals(Colors.ColorDepth.BASIC_16, detect(true, "COLORTERM", "yes"));
+    }
+
+    @Test
+    void term() {
+        assertEquals(Colors.ColorDepth.TRUECOLOR, detect(true, "TERM", "xterm-direct"));
+        assertEquals(Colors.ColorDepth.INDEXED_256, detect(true, "TERM", "xterm-256color"));
+        assertEquals(Colors.ColorDepth.BASIC_16, detect(true, "TERM", "xterm"));
+        assertEquals(Colors.ColorDepth.BASIC_16, detect(true));
+        assertEquals(Colors.ColorDepth.NONE, detect(true, "TERM", "dumb", "COLORTERM", "truecolor"));
+    }
+
+    @Test
+    void notATerminal() {
+        assertEquals(Colors.ColorDepth.NONE, detect(false));
+        assertEquals(Colors.ColorDepth.NONE, detect(false, "COLORTERM", "truecolor", "TERM", "xterm-256color"));
+    }
+
+    @Test
+    void forceColor() {
+        assertEquals(Colors.ColorDepth.BASIC_16, detect(false, "FORCE_COLOR", ""));
+        assertEquals(Colors.ColorDepth.BASIC_16, detect(false, "FORCE_COLOR", "1"));
+        assertEquals(Colors.ColorDepth.INDEXED_256, detect(false, "FORCE_COLOR", "2"));
+        assertEquals(Colors.ColorDepth.TRUECOLOR, detect(false, "FORCE_COLOR", "3"));
+        assertEquals(Colors.ColorDepth.NONE, detect(true, "FORCE_COLOR", "0", "COLORTERM", "truecolor"));
+        assertEquals(Colors.ColorDepth.NONE, detect(true, "FORCE_COLOR", "false"));
+        // Forcing sets the minimum, a better terminal keeps its depth
+        assertEquals(Colors.ColorDepth.TRUECOLOR, detect(false, "FORCE_COLOR", "1", "COLORTERM", "truecolor"));
+        assertEquals(Colors.ColorDepth.TRUECOLOR, detect(true, "FORCE_COLOR", "3", "TERM", "dumb"));
+    }
+
+    private static Colors.ColorDepth detect(boolean terminal, String... variables) {
+        Map<String, String> env = new HashMap<>();
+        for (int i = 0; i < variables.length; i += 2) {
+            env.put(variables[i], variables[i + 1]);
+        }
+        return Colors.detectColorDepth(env, terminal);
+    }
+}
@@ -0,0 +1,103 @@
+package ansicolors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the lines written by {@link Colors.ColorFormatter} for the standard and custom levels and in every color
+ * depth.
+ */
+class ColorFormatterTest {
+    private static final String TIMESTAMP = "\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}\\.\\d{3} ";
+    private static final String LINE = System.lineSeparator();
+
+    private final Colors.ColorFormatter formatter = new Colors.ColorFormatter();
+
+    @AfterEach
+    void restoreColorDepth() {
+        Colors.setColorDepth(Colors.ColorDepth.TRUECOLOR);
+    }
+
+    @Test
+    void levels() {
+        assertEquals("\u001B[1;38;5;9mSEVERE\u001B[0m  com.example.Service: Failed" + LINE,
+                withoutTimestamp(formatter.format(record(Level.SEVERE, "Failed"))));
+        assertEquals("\u001B[38;5;11mWARNING\u001B[0m com.example.Service: Disk almost full" + LINE,
+                withoutTimestamp(formatter.format(record(Level.WARNING, "Disk {0} full", "almost"))));
+        assertEquals("\u001B[38;5;2mINFO\u001B[0m    com.example.Service: Started" + LINE,
+                withoutTimestamp(formatter.format(record(Level.INFO, "Started"))));
+        assertEquals("\u001B[38;5;8mFINEST\u001B[0m  com.example.Service: Details" + LINE,
+                withoutTimestamp(formatter.format(record(Level.FINEST, "Details"))));
+    }
+
+    @Test
+    void customLevel() {
+        Level notice = new Level("NOTICE", 850) {
+        };
+        assertEquals("\u001B[38;5;2mNOTICE\u001B[0m  com.example.Service: Hello" + LINE,
+                withoutTimestamp(formatter.format(record(notice, "Hello"))));
+    }
+
+    @Test
+    void withStyle() {
+        Colors.ColorFormatter styled = formatter.withStyle(Level.INFO, Colors.style().bold().fg(0x0000ff));
+        assertEquals("\u001B[1;38;2;0;0;255mINFO\u001B[0m    com.example.Service: Started" + LINE,
+                withoutTimestamp(styled.format(record(Level.INFO, "Started"))));
+        assertEquals("\u001B[38;5;2mINFO\u001B[0m    com.example.Service: Started" + LINE,
+                withoutTimestamp(formatter.format(record(Level.INFO, "Started"))));
+        assertThrows(IllegalArgumentException.class, () -> formatter.withStyle(Level.ALL, Colors.style()));
+        assertThrows(IllegalArgumentException.class, () -> formatter.withStyle(Level.INFO, null));
+    }
+
+    @Test
+    void colorDepths() {
+        Colors.setColorDepth(Colors.ColorDepth.BASIC_16);
+        assertEquals("\u001B[93mWARNING\u001B[0m com.example.Service: Low" + LINE,
+                withoutTimestamp(formatter.format(record(Level.WARNING, "Low"))));
+        Colors.setColorDepth(Colors.ColorDepth.NONE);
+        assertEquals("WARNING com.example.Service: Low" + LINE,
+                withoutTimestamp(formatter.format(record(Level.WARNING, "Low"))));
+    }
+
+    @Test
+    void thrown() {
+        LogRecord record = record(Level.SEVERE, "Failed");
+        record.setThrown(new IllegalStateException("broken"));
+        String line = withoutTimestamp(formatter.format(record));
+        assertTrue(line.startsWith("\u001B[1;38;5;9mSEVERE\u001B[0m  com.example.Service: Failed" + LINE
+                + "java.lang.IllegalStateException: broken" + LINE + "\tat "), line);
+    }
+
+    @Test
+    void timestamp() {
+        LogRecord record = record(Level.INFO, "Started");
+        record.setMillis(0);
+        java.util.TimeZone zone = java.util.TimeZone.getDefault();
+        java.text.SimpleDateFormat expected = new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS ");
+        expected.setTimeZone(zone);
+        for (long millis : new long[]{0, 951782400123L, 1709164799999L, 4102444800000L, -86400001L}) {
+            record.setMillis(millis);
+            String line = formatter.format(record);
+            assertEquals(expected.format(new java.util.Date(millis)), line.substring(0, 24), "at " + millis);
+        }
+    }
+
+    private static LogRecord record(Level level, String message, Object... parameters) {
+        LogRecord record = new LogRecord(level, message);
+        record.setLoggerName("com.example.Service");
+        record.setParameters(parameters);
+        return record;
+    }
+
+    private static String withoutTimestamp(String line) {
+        assertTrue(line.substring(0, 24).matches(TIMESTAMP), line);
+        return line.substring(24);
+    }
+}
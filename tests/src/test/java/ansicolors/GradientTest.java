@@ -0,0 +1,63 @@
+package ansicolors;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks the endpoints of gradients in every color space and that callers cannot change the cached arrays.
+ */
+class GradientTest {
+    @Test
+    void endpoints() {
+        for (Colors.ColorSpace space : Colors.ColorSpace.values()) {
+            for (int steps = 1; steps <= 64; steps++) {
+                int[] colors = Colors.gradient(0x0000ff, 0xffcc00, steps, space);
+                assertEquals(steps, colors.length);
+                assertEquals(0x0000ff, colors[0], space + " " + steps);
+                if (steps > 1) {
+                    assertEquals(0xffcc00, colors[steps - 1], space + " " + steps);
+                }
+
+                String[] fg = Colors.fgGradient(0x0000ff, 0xffcc00, steps, space);
+                String[] bg = Colors.bgGradient(0x0000ff, 0xffcc00, steps, space);
+                for (int i = 0; i < steps; i++) {
+                    assertEquals(Colors.fg(colors[i]), fg[i]);
+                    assertEquals(Colors.bg(colors[i]), bg[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    void rgbSteps() {
+        assertArrayEquals(new int[]{0x000000, 0x7f7f7f, 0xfefefe}, Colors.gradient(0, 0xfefefe, 3, Colors.ColorSpace.RGB));
+        assertArrayEquals(new int[]{0x102030, 0x102030}, Colors.gradient(0x102030, 0x102030, 2, Colors.ColorSpace.HSV));
+    }
+
+    @Test
+    void defensiveCopies() {
+        int[] colors = Colors.gradient(0xff0000, 0x0000ff, 10, Colors.ColorSpace.OKLAB);
+        int[] expected = colors.clone();
+        colors[0] = 0x123456;
+        int[] again = Colors.gradient(0xff0000, 0x0000ff, 10, Colors.ColorSpace.OKLAB);
+        assertNotSame(colors, again);
+        assertArrayEquals(expected, again);
+
+        String[] sequences = Colors.fgGradient(0xff0000, 0x0000ff, 10, Colors.ColorSpace.OKLAB);
+        String first = sequences[0];
+        sequences[0] = "changed";
+        assertEquals(first, Colors.fgGradient(0xff0000, 0x0000ff, 10, Colors.ColorSpace.OKLAB)[0]);
+    }
+
+    @Test
+    void invalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> Colors.gradient(0, 0xffffff, 0, Colors.ColorSpace.RGB));
+        assertThrows(IllegalArgumentException.class, () -> Colors.gradient(0, 0xffffff, 4097, Colors.ColorSpace.RGB));
+        assertThrows(IllegalArgumentException.class, () -> Colors.gradient(-1, 0xffffff, 2, Colors.ColorSpace.RGB));
+        assertThrows(IllegalArgumentException.class, () -> Colors.fgGradient(0, 1 << 24, 2, Colors.ColorSpace.HSV));
+    }
+}
@@ -0,0 +1,73 @@
+package ansicolors;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks the half blocks of small images, transparency and odd heights, and that large images are stitched
+ * together in order.
+ */
+class HalfBlocksTest {
+    private static final int RED = 0xffff0000;
+    private static final int GREEN = 0xff00ff00;
+    private static final int BLUE = 0xff0000ff;
+    private static final int BLACK = 0xff000000;
+    private static final int TRANSPARENT = 0x7fff0000;
+
+    @Test
+    void upperAndLowerPixel() {
+        assertEquals("\u001B[38;2;255;0;0;48;2;0;0;255m▀\u001B[0m\n",
+                Colors.halfBlocks(new int[]{RED, BLUE}, 1, 2));
+    }
+
+    @Test
+    void sameColorsWrittenOnce() {
+        assertEquals("\u001B[48;2;0;255;0m \u001B[38;2;0;255;0;48;2;0;0;0m▀\u001B[0m\n",
+                Colors.halfBlocks(new int[]{GREEN, GREEN, GREEN, BLACK}, 2, 2));
+    }
+
+    @Test
+    void transparency() {
+        assertEquals(" \u001B[38;2;0;0;255m▄\u001B[0m\n"
+                        + "\u001B[38;2;0;0;255m▀ \u001B[0m\n",
+                Colors.halfBlocks(new int[]{TRANSPARENT, TRANSPARENT, TRANSPARENT, BLUE, BLUE, 0}, 2, 3));
+    }
+
+    @Test
+    void oddLastRow() {
+        assertEquals("\u001B[38;2;255;0;0;48;2;0;0;255m▀▀\u001B[0m\n"
+                        + "\u001B[38;2;0;255;0m▀▀\u001B[0m\n",
+                Colors.halfBlocks(new int[]{RED, RED, BLUE, BLUE, GREEN, GREEN}, 2, 3));
+    }
+
+    @Test
+    void stitchedInOrder() {
+        int width = 37;
+        int height = 301;
+        int[] argb = new int[width * height];
+        Random random = new Random(42);
+        for (int i = 0; i < argb.length; i++) {
+            argb[i] = random.nextInt(8) == 0 ? 0 : BLACK | random.nextInt(4) * 0x3f3f3f;
+        }
+
+        // Every line ends with a reset, so the lines can also be rendered one by one
+        StringBuilder expected = new StringBuilder();
+        for (int y = 0; y < height; y += 2) {
+            int rows = Math.min(2, height - y);
+            expected.append(Colors.halfBlocks(Arrays.copyOfRange(argb, y * width, (y + rows) * width), width, rows));
+        }
+        assertEquals(expected.toString(), Colors.halfBlocks(argb, width, height));
+    }
+
+    @Test
+    void invalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> Colors.halfBlocks(new int[4], 0, 2));
+        assertThrows(IllegalArgumentException.class, () -> Colors.halfBlocks(new int[4], 2, 0));
+        assertThrows(IllegalArgumentException.class, () -> Colors.halfBlocks(new int[3], 2, 2));
+    }
+}
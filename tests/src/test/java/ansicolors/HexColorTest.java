@@ -0,0 +1,53 @@
+package ansicolors;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks every hex form accepted by {@link Colors#hexToPackedRgb(String)} and that {@link Colors#HEX_COLOR_REGEX}
+ * agrees with it.
+ */
+class HexColorTest {
+    private static final String[] VALID = {
+            "#ffcc00", "ffcc00", "#FFCC00", "#FfCc00", "#fc0", "fc0", "#FC0", "#ffcc00ff", "ffcc0080", "#fc0f", "fc08"
+    };
+    private static final String[] INVALID = {
+            "", "#", "#f", "#ff", "#ffcc0", "#ffcc00f", "#ffcc00fff", "#ffcc00ff0", "##fc0", "#ggg", "#ffcc0g",
+            " #fc0", "#fc0 ", "#ééé", "#０００"
+    };
+
+    @Test
+    void acceptedForms() {
+        for (String hexColor : VALID) {
+            assertEquals(0xffcc00, Colors.hexToPackedRgb(hexColor), hexColor);
+            assertEquals(Colors.fg("#ffcc00"), Colors.fg(hexColor), hexColor);
+            assertEquals(Colors.bg("#ffcc00"), Colors.bg(hexColor), hexColor);
+        }
+        assertEquals(0x000000, Colors.hexToPackedRgb("#000"));
+        assertEquals(0xffffff, Colors.hexToPackedRgb("FFF"));
+        assertEquals(0x123456, Colors.hexToPackedRgb("#12345678"));
+        assertEquals(0x112233, Colors.hexToPackedRgb("#1234"));
+    }
+
+    @Test
+    void rejectedForms() {
+        for (String hexColor : INVALID) {
+            assertThrows(IllegalArgumentException.class, () -> Colors.hexToPackedRgb(hexColor), hexColor);
+            assertThrows(IllegalArgumentException.class, () -> Colors.fg(hexColor), hexColor);
+        }
+    }
+
+    @Test
+    void regexMatchesAcceptedForms() {
+        for (String hexColor : VALID) {
+            assertTrue(hexColor.matches(Colors.HEX_COLOR_REGEX), hexColor);
+        }
+        for (String hexColor : INVALID) {
+            assertFalse(hexColor.matches(Colors.HEX_COLOR_REGEX), hexColor);
+        }
+    }
+}
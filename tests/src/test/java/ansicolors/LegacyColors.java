@@ -0,0 +1,133 @@
+package ansicolors;
+
+/**
+ * The original String.format and regex based implementation of Colors, kept as the expected output of the tests.
+ * <p>
+ * The benchmarks copy this file next to Colors.java at build time and use it as their baseline.
+ */
+public final class LegacyColors {
+    private static final String MAIN_TEMPLATE = "\u001B[%s;%s;%sm";
+    private static final String RGB_TEMPLATE = "%s;%s;%s";
+    private static final String EIGHT_BIT_TEMPLATE = "%s";
+
+    private LegacyColors() {
+    }
+
+    public static String fg(short index) {
+        return build("38", new int[]{index});
+    }
+
+    public static String fg(int red, int green, int blue) {
+        return build("38", new int[]{red, green, blue});
+    }
+
+    public static String fg(int color) {
+        return build("38", intToRgb(color));
+    }
+
+    public static String fg(String hexColor) {
+        return build("38", hexToRgb(hexColor));
+    }
+
+    public static String fg(double hue, double saturation, double value) {
+        return build("38", hsvToRgb(hue, saturation, value));
+    }
+
+    public static String bg(short index) {
+        return build("48", new int[]{index});
+    }
+
+    public static String bg(int red, int green, int blue) {
+        return build("48", new int[]{red, green, blue});
+    }
+
+    public static String bg(int color) {
+        return build("48", intToRgb(color));
+    }
+
+    public static String bg(String hexColor) {
+        return build("48", hexToRgb(hexColor));
+    }
+
+    public static String bg(double hue, double saturation, double value) {
+        return build("48", hsvToRgb(hue, saturation, value));
+    }
+
+    private static String build(String level, int[] colors) {
+        String colorMode = colors.length > 1 ? "2" : "5";
+        String template = colors.length > 1 ? RGB_TEMPLATE : EIGHT_BIT_TEMPLATE;
+
+        Object[] varargs = new Object[colors.length];
+        for (int i = 0; i < colors.length; i++) {
+            if (colors[i] < 0 || colors[i] > 255) {
+                throw new IllegalArgumentException("Color component or index must be >= 0 and <= 255");
+            }
+            varargs[i] = colors[i];
+        }
+
+        return String.format(MAIN_TEMPLATE, level, colorMode, String.format(template, varargs));
+    }
+
+    private static int[] intToRgb(int color) {
+        if (color < 0 || color > 16777215) {
+            throw new IllegalArgumentException("Color must be >= 0 and <= 16777215");
+        }
+
+        return new int[]{(color >> 16) & 0xFF, (color >> 8) & 0xFF, color & 0xFF};
+    }
+
+    public static int[] hexToRgb(String hexColor) {
+        if (!hexColor.matches("^#([A-Fa-f0-9]{6})$")) {
+            throw new IllegalArgumentException("Color must be in the format '#ffcc00'");
+        }
+
+        int red = Integer.parseInt(hexColor.substring(1, 3), 16);
+        int green = Integer.parseInt(hexColor.substring(3, 5), 16);
+        int blue = Integer.parseInt(hexColor.substring(5, 7), 16);
+        return new int[]{red, green, blue};
+    }
+
+    private static int[] hsvToRgb(double hue, double saturation, double value) {
+        if (hue < 0 || hue > 360) {
+            throw new IllegalArgumentException("Hue must be >= 0.0 and <= 360.0.");
+        }
+        if (saturation < 0 || saturation > 1) {
+            throw new IllegalArgumentException("Saturation must be >= 0.0 and <= 1.0.");
+        }
+        if (value < 0 || value > 1) {
+            throw new IllegalArgumentException("Value must be >= 0.0 and <= 1.0.");
+        }
+
+        double sectorDouble = (hue / 60.0) % 6;
+        int sector = (int) sectorDouble;
+        double f = sectorDouble - sector;
+        double p = value * (1 - saturation);
+        double q = value * (1 - f * saturation);
+        double t = value * (1 - (1 - f) * saturation);
+        double[] rgb;
+        switch (sector) {
+            case 0:
+                rgb = new double[]{value, t, p};
+                break;
+            case 1:
+                rgb = new double[]{q, value, p};
+                break;
+            case 2:
+                rgb = new double[]{p, value, t};
+                break;
+            case 3:
+                rgb = new double[]{p, q, value};
+                break;
+            case 4:
+                rgb = new double[]{t, p, value};
+                break;
+            case 5:
+                rgb = new double[]{value, p, q};
+                break;
+            default:
+                rgb = new double[]{0, 0, 0};
+                break;
+        }
+        return new int[]{(int) (rgb[0] * 255), (int) (rgb[1] * 255), (int) (rgb[2] * 255)};
+    }
+}
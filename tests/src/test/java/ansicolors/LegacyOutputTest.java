@@ -0,0 +1,93 @@
+package ansicolors;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that {@code fg} and {@code bg} still return exactly what the original implementation returned in truecolor,
+ * for every parameter type it accepted.
+ */
+class LegacyOutputTest {
+    private static final int SAMPLES = 100000;
+
+    private final Random random = new Random(42);
+
+    @Test
+    void indexes() {
+        for (short index = 0; index < 256; index++) {
+            assertEquals(LegacyColors.fg(index), Colors.fg(index));
+            assertEquals(LegacyColors.bg(index), Colors.bg(index));
+        }
+    }
+
+    @Test
+    void components() {
+        for (int red = 0; red < 256; red += 3) {
+            for (int green = 0; green < 256; green += 5) {
+                for (int blue = 0; blue < 256; blue += 7) {
+                    assertEquals(LegacyColors.fg(red, green, blue), Colors.fg(red, green, blue));
+                    assertEquals(LegacyColors.bg(red, green, blue), Colors.bg(red, green, blue));
+                }
+            }
+        }
+    }
+
+    @Test
+    void colorValues() {
+        for (int i = 0; i < SAMPLES; i++) {
+            int color = random.nextInt(1 << 24);
+            assertEquals(LegacyColors.fg(color), Colors.fg(color));
+            assertEquals(LegacyColors.bg(color), Colors.bg(color));
+        }
+        assertEquals(LegacyColors.fg(0xFFFFFF), Colors.fg(0xFFFFFF));
+    }
+
+    @Test
+    void hexColors() {
+        for (int i = 0; i < SAMPLES; i++) {
+            String hexColor = String.format(random.nextBoolean() ? "#%06x" : "#%06X", random.nextInt(1 << 24));
+            assertEquals(LegacyColors.fg(hexColor), Colors.fg(hexColor));
+            assertEquals(LegacyColors.bg(hexColor), Colors.bg(hexColor));
+        }
+    }
+
+    @Test
+    void hsvColors() {
+        for (int hue = 0; hue <= 3600; hue += 5) {
+            for (int saturation = 0; saturation <= 10; saturation++) {
+                for (int value = 0; value <= 10; value++) {
+                    double h = hue / 10.0;
+                    double s = saturation / 10.0;
+                    double v = value / 10.0;
+                    assertEquals(LegacyColors.fg(h, s, v), Colors.fg(h, s, v), h + ", " + s + ", " + v);
+                    assertEquals(LegacyColors.bg(h, s, v), Colors.bg(h, s, v), h + ", " + s + ", " + v);
+                }
+            }
+        }
+        for (int i = 0; i < SAMPLES; i++) {
+            double h = random.nextDouble() * 360;
+            double s = random.nextDouble();
+            double v = random.nextDouble();
+            assertEquals(LegacyColors.fg(h, s, v), Colors.fg(h, s, v), h + ", " + s + ", " + v);
+        }
+    }
+
+    @Test
+    void invalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> Colors.fg((short) 256));
+        assertThrows(IllegalArgumentException.class, () -> Colors.bg((short) -1));
+        assertThrows(IllegalArgumentException.class, () -> Colors.fg(256, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> Colors.bg(0, 0, -1));
+        assertThrows(IllegalArgumentException.class, () -> Colors.fg(1 << 24));
+        assertThrows(IllegalArgumentException.class, () -> Colors.bg(-1));
+        assertThrows(IllegalArgumentException.class, () -> Colors.fg("#ffcc0g"));
+        assertThrows(IllegalArgumentException.class, () -> Colors.bg("#ffcc0"));
+        assertThrows(IllegalArgumentException.class, () -> Colors.fg(360.5, 1.0, 1.0));
+        assertThrows(IllegalArgumentException.class, () -> Colors.bg(0.0, 1.5, 1.0));
+        assertThrows(IllegalArgumentException.class, () -> Colors.fg(0.0, 1.0, -0.5));
+    }
+}
@@ -0,0 +1,45 @@
+package ansicolors;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks named color lookups, ignoring case, and that names which are not CSS colors are rejected.
+ */
+class NamedColorTest {
+    @Test
+    void lookups() {
+        assertEquals(0xffa500, Colors.namedColor("orange").rgb());
+        assertEquals(0xf0f8ff, Colors.namedColor("aliceblue").rgb());
+        assertEquals(0x9acd32, Colors.namedColor("yellowgreen").rgb());
+        assertEquals(0x663399, Colors.namedColor("rebeccapurple").rgb());
+        assertEquals(0xfafad2, Colors.namedColor("lightgoldenrodyellow").rgb());
+        assertEquals(Colors.namedColor("gray").rgb(), Colors.namedColor("grey").rgb());
+        assertEquals(Colors.namedColor("aqua").rgb(), Colors.namedColor("cyan").rgb());
+    }
+
+    @Test
+    void ignoresCase() {
+        assertSame(Colors.namedColor("slategray"), Colors.namedColor("SlateGray"));
+        assertSame(Colors.namedColor("slategray"), Colors.namedColor("SLATEGRAY"));
+        assertEquals("\u001B[38;2;112;128;144m", Colors.fgNamed("SlateGray"));
+        assertEquals("\u001B[48;2;112;128;144m", Colors.bgNamed("slategray"));
+        assertEquals(Colors.fg(0xffa500), Colors.namedColor("Orange").fg());
+    }
+
+    @Test
+    void unknownNames() {
+        for (String name : new String[]{"", "nope", "orang", "oranges", "orange ", " orange", "grey1", "light gray",
+                "slate-gray", "#ffa500", "aliceblu", "aliceblue\u0000", "örange", "darkgreyish"}) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> Colors.namedColor(name),
+                    name);
+            assertEquals("Color name must be one of the CSS named colors like 'orange'", e.getMessage());
+            assertThrows(IllegalArgumentException.class, () -> Colors.fgNamed(name));
+            assertThrows(IllegalArgumentException.class, () -> Colors.bgNamed(name));
+        }
+        assertThrows(NullPointerException.class, () -> Colors.namedColor(null));
+    }
+}
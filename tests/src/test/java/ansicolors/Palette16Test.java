@@ -0,0 +1,60 @@
+package ansicolors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks {@link Colors#toIndex16(int, int, int)} against a search over the 16 basic colors and the output of the
+ * 16 color mode.
+ */
+class Palette16Test {
+    @AfterEach
+    void trueColor() {
+        Colors.setColorDepth(Colors.ColorDepth.TRUECOLOR);
+    }
+
+    @Test
+    void nearestIndex() {
+        for (int red = 0; red < 256; red += 3) {
+            for (int green = 0; green < 256; green += 3) {
+                for (int blue = 0; blue < 256; blue += 3) {
+                    assertNearest(red, green, blue);
+                }
+            }
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < 200000; i++) {
+            assertNearest(random.nextInt(256), random.nextInt(256), random.nextInt(256));
+        }
+    }
+
+    @Test
+    void basicOutput() {
+        Colors.setColorDepth(Colors.ColorDepth.BASIC_16);
+        assertEquals("\u001B[91m", Colors.fg(255, 0, 0));
+        assertEquals("\u001B[101m", Colors.bg("#ff0000"));
+        assertEquals("\u001B[31m", Colors.fg((short) 1));
+        assertEquals("\u001B[101m", Colors.bg((short) 9));
+        assertEquals("\u001B[91m", Colors.fg((short) 196));
+        assertEquals("\u001B[30m", Colors.fg(0x000000));
+        assertEquals("\u001B[107m", Colors.bg(0xffffff));
+        assertEquals("\u001B[1;32;44m", Colors.style().fg(10, 200, 10).bg((short) 4).bold().sequence());
+    }
+
+    private static void assertNearest(int red, int green, int blue) {
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int index = 0; index < 16; index++) {
+            int distance = Palette256Test.distance(red, green, blue, Colors.indexToPackedRgb(index));
+            if (distance < bestDistance) {
+                best = index;
+                bestDistance = distance;
+            }
+        }
+        assertEquals(best, Colors.toIndex16(red, green, blue), red + ", " + green + ", " + blue);
+    }
+}
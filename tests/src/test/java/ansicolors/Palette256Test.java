@@ -0,0 +1,77 @@
+package ansicolors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks {@link Colors#toIndex256(int, int, int)} against a search over the whole palette and the output of the 256
+ * color mode.
+ */
+class Palette256Test {
+    @AfterEach
+    void trueColor() {
+        Colors.setColorDepth(Colors.ColorDepth.TRUECOLOR);
+    }
+
+    @Test
+    void nearestIndex() {
+        for (int red = 0; red < 256; red += 3) {
+            for (int green = 0; green < 256; green += 3) {
+                for (int blue = 0; blue < 256; blue += 3) {
+                    assertNearest(red, green, blue);
+                }
+            }
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < 200000; i++) {
+            assertNearest(random.nextInt(256), random.nextInt(256), random.nextInt(256));
+        }
+        for (int grey = 0; grey < 256; grey++) {
+            assertNearest(grey, grey, grey);
+            assertNearest(grey, grey, 255 - grey);
+        }
+    }
+
+    @Test
+    void paletteEntriesMapToThemselves() {
+        for (int index = 16; index < 256; index++) {
+            int rgb = Colors.indexToPackedRgb(index);
+            assertEquals(index, Colors.toIndex256(rgb >> 16, (rgb >> 8) & 0xFF, rgb & 0xFF));
+        }
+    }
+
+    @Test
+    void indexedOutput() {
+        Colors.setColorDepth(Colors.ColorDepth.INDEXED_256);
+        assertEquals("\u001B[38;5;220m", Colors.fg(255, 204, 0));
+        assertEquals("\u001B[48;5;220m", Colors.bg("#ffcc00"));
+        assertEquals("\u001B[38;5;16m", Colors.fg(0x000000));
+        assertEquals("\u001B[48;5;231m", Colors.bg(0xffffff));
+        assertEquals("\u001B[38;5;244m", Colors.fg(0x808080));
+        assertEquals("\u001B[38;5;3m", Colors.fg((short) 3));
+    }
+
+    private static void assertNearest(int red, int green, int blue) {
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int index = 16; index < 256; index++) {
+            int distance = distance(red, green, blue, Colors.indexToPackedRgb(index));
+            if (distance < bestDistance) {
+                best = index;
+                bestDistance = distance;
+            }
+        }
+        assertEquals(best, Colors.toIndex256(red, green, blue), red + ", " + green + ", " + blue);
+    }
+
+    static int distance(int red, int green, int blue, int rgb) {
+        int dr = red - (rgb >> 16);
+        int dg = green - ((rgb >> 8) & 0xFF);
+        int db = blue - (rgb & 0xFF);
+        return dr * dr + dg * dg + db * db;
+    }
+}
@@ -0,0 +1,82 @@
+package ansicolors;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that the {@code put} methods write the same bytes as the Strings return, at the position of the buffer.
+ */
+class PutSequenceTest {
+    @Test
+    void sameBytesAsStrings() {
+        for (ByteBuffer buffer : new ByteBuffer[]{ByteBuffer.allocate(64), ByteBuffer.allocateDirect(64)}) {
+            assertPut(Colors.fg((short) 220), buffer, Colors.putFg(buffer, (short) 220));
+            assertPut(Colors.bg((short) 7), buffer, Colors.putBg(buffer, (short) 7));
+            assertPut(Colors.fg(255, 204, 0), buffer, Colors.putFg(buffer, 255, 204, 0));
+            assertPut(Colors.bg(0, 0, 0), buffer, Colors.putBg(buffer, 0, 0, 0));
+            assertPut(Colors.fg(0x123456), buffer, Colors.putFg(buffer, 0x123456));
+            assertPut(Colors.bg(0xffffff), buffer, Colors.putBg(buffer, 0xffffff));
+            assertPut(Colors.reset(), buffer, Colors.putReset(buffer));
+        }
+    }
+
+    @Test
+    void writesAtPosition() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64);
+        buffer.put("abc".getBytes(StandardCharsets.US_ASCII));
+        int length = Colors.putFg(buffer, 255, 204, 0);
+        buffer.put((byte) 'x');
+        Colors.putReset(buffer);
+
+        buffer.flip();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        assertEquals("abc" + Colors.fg(255, 204, 0) + "x" + Colors.reset(), new String(bytes, StandardCharsets.US_ASCII));
+        assertEquals(Colors.fg(255, 204, 0).length(), length);
+    }
+
+    @Test
+    void overflowWritesNothing() {
+        String sequence = Colors.fg(255, 204, 0);
+        for (ByteBuffer buffer : new ByteBuffer[]{ByteBuffer.allocate(32), ByteBuffer.allocateDirect(32)}) {
+            buffer.position(32 - sequence.length() + 1);
+            int position = buffer.position();
+            assertThrows(BufferOverflowException.class, () -> Colors.putFg(buffer, 255, 204, 0));
+            assertThrows(BufferOverflowException.class, () -> Colors.putBg(buffer, 0xffcc00));
+            assertEquals(position, buffer.position());
+            for (int i = 0; i < buffer.capacity(); i++) {
+                assertEquals(0, buffer.get(i));
+            }
+
+            // Exactly enough room
+            buffer.position(32 - sequence.length());
+            assertEquals(sequence.length(), Colors.putFg(buffer, 255, 204, 0));
+            assertEquals(32, buffer.position());
+        }
+    }
+
+    @Test
+    void invalidParameters() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        assertThrows(IllegalArgumentException.class, () -> Colors.putFg(buffer, (short) 256));
+        assertThrows(IllegalArgumentException.class, () -> Colors.putBg(buffer, 0, 256, 0));
+        assertThrows(IllegalArgumentException.class, () -> Colors.putFg(buffer, -1));
+        assertEquals(0, buffer.position());
+    }
+
+    private static void assertPut(String expected, ByteBuffer buffer, int length) {
+        assertEquals(expected.length(), length);
+        assertEquals(expected.length(), buffer.position());
+        buffer.flip();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        assertEquals(expected, new String(bytes, StandardCharsets.US_ASCII));
+        buffer.clear();
+    }
+}
@@ -0,0 +1,108 @@
+package ansicolors;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the sequences, counters and the bound of {@link Colors.SequenceCache}.
+ */
+class SequenceCacheTest {
+    @Test
+    void hitsAndMisses() {
+        Colors.SequenceCache cache = new Colors.SequenceCache(16);
+        String first = cache.fg(255, 204, 0);
+        assertEquals(Colors.fg(255, 204, 0), first);
+        assertEquals(0, cache.hits());
+        assertEquals(1, cache.misses());
+
+        // All parameter types of a color share the entry
+        assertSame(first, cache.fg(255, 204, 0));
+        assertSame(first, cache.fg(0xffcc00));
+        assertSame(first, cache.fg("#ffcc00"));
+        assertEquals(3, cache.hits());
+        assertEquals(1, cache.misses());
+
+        // The background is a different entry
+        assertEquals(Colors.bg(255, 204, 0), cache.bg(0xffcc00));
+        assertEquals(2, cache.misses());
+        assertEquals(Colors.bg(255, 204, 0), cache.bg("#fc0"));
+        assertEquals(4, cache.hits());
+    }
+
+    @Test
+    void boundedByCapacity() {
+        Colors.SequenceCache cache = new Colors.SequenceCache(16);
+        for (int color = 0; color < 1000; color++) {
+            assertEquals(Colors.fg(color), cache.fg(color));
+        }
+        assertEquals(1000, cache.misses());
+
+        // At most 16 of the colors can still be cached, all others were evicted
+        for (int color = 0; color < 1000; color++) {
+            assertEquals(Colors.fg(color), cache.fg(color));
+        }
+        assertTrue(cache.hits() <= 16, "hits " + cache.hits());
+        assertEquals(2000, cache.hits() + cache.misses());
+    }
+
+    @Test
+    void clear() {
+        Colors.SequenceCache cache = new Colors.SequenceCache(16);
+        cache.fg(1, 2, 3);
+        cache.fg(1, 2, 3);
+        cache.clear();
+        assertEquals(0, cache.hits());
+        assertEquals(0, cache.misses());
+        cache.fg(1, 2, 3);
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    void sharedBetweenThreads() throws Exception {
+        Colors.SequenceCache cache = new Colors.SequenceCache(256);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                int seed = thread;
+                futures.add(executor.submit(() -> {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 100000; i++) {
+                        int color = random.nextInt(512);
+                        if (random.nextBoolean()) {
+                            assertEquals(Colors.fg(color), cache.fg(color));
+                        } else {
+                            assertEquals(Colors.bg(color), cache.bg(color));
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(800000, cache.hits() + cache.misses());
+    }
+
+    @Test
+    void invalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> new Colors.SequenceCache(0));
+        Colors.SequenceCache cache = new Colors.SequenceCache(16);
+        assertThrows(IllegalArgumentException.class, () -> cache.fg(256, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> cache.bg(1 << 24));
+        assertThrows(IllegalArgumentException.class, () -> cache.fg("#ffcc0"));
+    }
+}
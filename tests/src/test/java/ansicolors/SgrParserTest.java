@@ -0,0 +1,193 @@
+package ansicolors;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks the spans that {@link Colors.SgrParser} reports, and that it reads back the same text and the same style
+ * for every character that {@link Colors.AnsiStateWriter} wrote.
+ */
+class SgrParserTest {
+    private static final int CELLS = 20000;
+
+    private final Random random = new Random(42);
+    private final StringBuilder output = new StringBuilder();
+    private final StringBuilder text = new StringBuilder();
+    private final int[] attributes = new int[CELLS];
+    private final int[] foregrounds = new int[CELLS];
+    private final int[] backgrounds = new int[CELLS];
+
+    @Test
+    void spans() {
+        List<String> spans = parse("plain \u001B[1;38;5;220mbold gold\u001B[22m gold \u001B[31;42mred on green"
+                + "\u001B[39;49m default \u001B[91;104;4mbright\u001B[0m \u001B[38;2;255;204;0;48;5;236mrgb\u001B[m end");
+        List<String> expected = new ArrayList<>();
+        expected.add(span(0, 6, 0, Colors.DEFAULT_COLOR, Colors.DEFAULT_COLOR));
+        expected.add(span(6, 15, Colors.BOLD, Colors.indexedColor(220), Colors.DEFAULT_COLOR));
+        expected.add(span(15, 21, 0, Colors.indexedColor(220), Colors.DEFAULT_COLOR));
+        expected.add(span(21, 33, 0, Colors.indexedColor(1), Colors.indexedColor(2)));
+        expected.add(span(33, 42, 0, Colors.DEFAULT_COLOR, Colors.DEFAULT_COLOR));
+        expected.add(span(42, 48, Colors.UNDERLINE, Colors.indexedColor(9), Colors.indexedColor(12)));
+        expected.add(span(48, 49, 0, Colors.DEFAULT_COLOR, Colors.DEFAULT_COLOR));
+        expected.add(span(49, 52, 0, Colors.rgbColor(0xffcc00), Colors.indexedColor(236)));
+        expected.add(span(52, 56, 0, Colors.DEFAULT_COLOR, Colors.DEFAULT_COLOR));
+        assertEquals(expected, spans);
+    }
+
+    @Test
+    void sameSpansAtEverySplit() {
+        String input = "a\u001B[1;38;2;1;2;3mb\u001B[0;4;48;5;17mc\u001B]0;title\u0007d\u001B[mefg";
+        List<String> expected = parse(input);
+        for (int split = 0; split <= input.length(); split++) {
+            List<String> spans = new ArrayList<>();
+            Colors.SgrParser parser = new Colors.SgrParser((start, end, attributes, foreground, background) ->
+                    spans.add(span(start, end, attributes, foreground, background)));
+            StringBuilder out = new StringBuilder();
+            parser.parse(input.substring(0, split), out);
+            parser.parse(input.substring(split), out);
+            parser.flush();
+            assertEquals("abcdefg", out.toString());
+            assertEquals(expected, spans, "split at " + split);
+        }
+    }
+
+    @Test
+    void invalidColorsAreIgnored() {
+        List<String> spans = parse("\u001B[38;5;256ma\u001B[38;2;1;2ma\u001B[48;2;1;2;300ma");
+        List<String> expected = new ArrayList<>();
+        expected.add(span(0, 3, 0, Colors.DEFAULT_COLOR, Colors.DEFAULT_COLOR));
+        assertEquals(expected, spans);
+    }
+
+    @Test
+    void tooManyParameters() {
+        // 31 resets and then "3;1", the separator before the 1 is the 33rd parameter and no red foreground
+        String parameters = String.join("", Collections.nCopies(31, "0;"));
+        List<String> expected = new ArrayList<>();
+        expected.add(span(0, 2, Colors.BOLD, Colors.DEFAULT_COLOR, Colors.DEFAULT_COLOR));
+        assertEquals(expected, parse("\u001B[1m\u001B[" + parameters + "3;1ma\u001B[" + parameters + "1mb"));
+
+        // 32 parameters are still applied
+        expected.clear();
+        expected.add(span(0, 1, Colors.ITALIC, Colors.DEFAULT_COLOR, Colors.DEFAULT_COLOR));
+        assertEquals(expected, parse("\u001B[1m\u001B[" + parameters + "3ma"));
+    }
+
+    @Test
+    void nullListener() {
+        assertThrows(IllegalArgumentException.class, () -> new Colors.SgrParser(null));
+    }
+
+    @Test
+    void stateWriterRandomStyles() {
+        Colors.AnsiStateWriter writer = new Colors.AnsiStateWriter(output);
+        for (int i = 0; i < CELLS; i++) {
+            // Repeat the previous style now and then, the writer has to write nothing for it
+            if (i == 0 || random.nextInt(4) != 0) {
+                attributes[i] = random.nextInt(Colors.ALL_ATTRIBUTES + 1);
+                foregrounds[i] = randomColor();
+                backgrounds[i] = randomColor();
+            } else {
+                attributes[i] = attributes[i - 1];
+                foregrounds[i] = foregrounds[i - 1];
+                backgrounds[i] = backgrounds[i - 1];
+            }
+            writer.style(attributes[i], foregrounds[i], backgrounds[i]).write((char) ('a' + i % 26));
+            text.append((char) ('a' + i % 26));
+        }
+        writer.reset();
+
+        assertParsed();
+    }
+
+    @Test
+    void stateWriterStyles() {
+        Colors.Style[] styles = {
+                Colors.style(),
+                Colors.style().fg("#ffcc00").bold(),
+                Colors.style().fg((short) 2).bg((short) 236),
+                Colors.style().bg(0x102030),
+                Colors.style().fg((short) 9).bold(),
+        };
+        Colors.AnsiStateWriter writer = new Colors.AnsiStateWriter(output);
+        for (int i = 0; i < CELLS; i++) {
+            Colors.Style style = styles[random.nextInt(styles.length)];
+            writer.style(style).write('x');
+            text.append('x');
+            Colors.SgrParser parser = parseStyle(style.toString());
+            attributes[i] = parser.attributes();
+            foregrounds[i] = parser.foreground();
+            backgrounds[i] = parser.background();
+        }
+        writer.reset();
+
+        assertParsed();
+    }
+
+    private int randomColor() {
+        switch (random.nextInt(3)) {
+            case 0:
+                return Colors.DEFAULT_COLOR;
+            case 1:
+                return Colors.indexedColor(random.nextInt(256));
+            default:
+                return Colors.rgbColor(random.nextInt(1 << 24));
+        }
+    }
+
+    private static List<String> parse(String text) {
+        List<String> spans = new ArrayList<>();
+        Colors.SgrParser parser = new Colors.SgrParser((start, end, attributes, foreground, background) ->
+                spans.add(span(start, end, attributes, foreground, background)));
+        parser.parse(text, new StringBuilder());
+        parser.flush();
+        return spans;
+    }
+
+    private static String span(long start, long end, int attributes, int foreground, int background) {
+        return start + "-" + end + " " + Integer.toHexString(attributes) + " " + Integer.toHexString(foreground) + " "
+                + Integer.toHexString(background);
+    }
+
+    private static Colors.SgrParser parseStyle(String sequence) {
+        Colors.SgrParser parser = new Colors.SgrParser((start, end, attributes, foreground, background) -> {
+        });
+        parser.parse(sequence, new StringBuilder());
+        return parser;
+    }
+
+    private void assertParsed() {
+        int[] parsedAttributes = new int[CELLS];
+        int[] parsedForegrounds = new int[CELLS];
+        int[] parsedBackgrounds = new int[CELLS];
+        long[] covered = new long[1];
+        Colors.SgrParser parser = new Colors.SgrParser((start, end, attributes, foreground, background) -> {
+            assertEquals(covered[0], start, "spans without gaps");
+            for (long i = start; i < end; i++) {
+                parsedAttributes[(int) i] = attributes;
+                parsedForegrounds[(int) i] = foreground;
+                parsedBackgrounds[(int) i] = background;
+            }
+            covered[0] = end;
+        });
+        assertEquals(text.toString(), parser.parse(output, new StringBuilder()).toString());
+        parser.flush();
+
+        assertEquals(CELLS, covered[0]);
+        for (int i = 0; i < CELLS; i++) {
+            assertEquals(attributes[i], parsedAttributes[i], "attributes of cell " + i);
+            assertEquals(foregrounds[i], parsedForegrounds[i], "foreground of cell " + i);
+            assertEquals(backgrounds[i], parsedBackgrounds[i], "background of cell " + i);
+        }
+        assertEquals(0, parser.attributes());
+        assertEquals(Colors.DEFAULT_COLOR, parser.foreground());
+        assertEquals(Colors.DEFAULT_COLOR, parser.background());
+    }
+}
@@ -0,0 +1,60 @@
+package ansicolors;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Checks the combined sequences of {@link Colors.Style} and that styles are immutable.
+ */
+class StyleTest {
+    @Test
+    void combinedSequence() {
+        assertEquals("\u001B[1;38;2;255;204;0;48;5;236m",
+                Colors.style().fg("#ffcc00").bg((short) 236).bold().toString());
+        assertEquals("\u001B[38;5;220m", Colors.style().fg((short) 220).sequence());
+        assertEquals("\u001B[48;2;1;2;3m", Colors.style().bg(1, 2, 3).sequence());
+        assertEquals("\u001B[38;2;18;52;86;48;2;255;255;255m", Colors.style().fg(0x123456).bg("#fff").sequence());
+        assertEquals("\u001B[1m", Colors.style().bold().sequence());
+        assertEquals("", Colors.style().sequence());
+    }
+
+    @Test
+    void sameAsSeparateSequences() {
+        Colors.Style style = Colors.style().fg(48.0, 1.0, 1.0).bg(0x102030);
+        String fg = Colors.fg(48.0, 1.0, 1.0);
+        String bg = Colors.bg(0x102030);
+        // ESC[38;2;r;g;bm and ESC[48;2;r;g;bm joined with a separator
+        assertEquals(fg.substring(0, fg.length() - 1) + ";" + bg.substring(2), style.sequence());
+    }
+
+    @Test
+    void immutable() {
+        Colors.Style base = Colors.style().fg((short) 1);
+        Colors.Style bold = base.bold();
+        Colors.Style background = base.bg((short) 2);
+        assertEquals("\u001B[38;5;1m", base.sequence());
+        assertEquals("\u001B[1;38;5;1m", bold.sequence());
+        assertEquals("\u001B[38;5;1;48;5;2m", background.sequence());
+        assertEquals("", Colors.style().sequence());
+    }
+
+    @Test
+    void builtOnce() {
+        Colors.Style style = Colors.style().fg(255, 204, 0).bold();
+        assertSame(style.sequence(), style.sequence());
+        assertSame(style.sequence(), style.toString());
+    }
+
+    @Test
+    void equalsAndHashCode() {
+        Colors.Style style = Colors.style().fg("#ffcc00").bold();
+        Colors.Style same = Colors.style().bold().fg(255, 204, 0);
+        assertEquals(style, same);
+        assertEquals(style.hashCode(), same.hashCode());
+        assertNotEquals(style, style.bg((short) 0));
+        assertNotEquals(style, Colors.style().fg("#ffcc00"));
+    }
+}
@@ -0,0 +1,55 @@
+package ansicolors;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks the widths of escape sequences, wide and zero-width characters, and the padding and truncation built on
+ * them.
+ */
+class WidthTest {
+    private static final String GREEN = "\u001B[38;5;2m";
+    private static final String RESET = "\u001B[0m";
+
+    @Test
+    void visibleWidth() {
+        assertEquals(0, Colors.visibleWidth(""));
+        assertEquals(5, Colors.visibleWidth("Hello"));
+        assertEquals(5, Colors.visibleWidth(GREEN + "Hello" + RESET));
+        assertEquals(5, Colors.visibleWidth("\u001B]0;title\u0007Hello\u001B[1;38;2;255;204;0m"));
+        assertEquals(8, Colors.visibleWidth("サービス"));
+        assertEquals(4, Colors.visibleWidth("ＡＢ"));
+        assertEquals(2, Colors.visibleWidth("😀"));
+        // Combining marks, format and control characters take no space
+        assertEquals(1, Colors.visibleWidth("e\u0301"));
+        assertEquals(2, Colors.visibleWidth("a\u200Bb\u0007"));
+        // Hangul syllables are wide, conjoining vowels and final consonants add nothing to the leading consonant
+        assertEquals(2, Colors.visibleWidth("\uD55C"));
+        assertEquals(2, Colors.visibleWidth("\u1112\u1161\u11AB"));
+        assertEquals(2, Colors.visibleWidth("\u1100\uD7B0\uD7CB"));
+    }
+
+    @Test
+    void padding() {
+        assertEquals(GREEN + "サービス" + RESET + "  ", Colors.padRight(GREEN + "サービス" + RESET, 10));
+        assertEquals("  " + GREEN + "ab" + RESET, Colors.padLeft(GREEN + "ab" + RESET, 4));
+        assertEquals("abcdef", Colors.padRight("abcdef", 3));
+        assertEquals("abc", Colors.padLeft("abc", -1));
+
+        StringBuilder row = new StringBuilder("|");
+        Colors.appendPadLeft(Colors.appendPadRight(row, "サ", 3).append('|'), "1", 3).append('|');
+        assertEquals("|サ |  1|", row.toString());
+    }
+
+    @Test
+    void truncate() {
+        assertEquals("abc", Colors.truncate("abcdef", 3));
+        assertEquals("abcdef", Colors.truncate("abcdef", 10));
+        assertEquals("", Colors.truncate("abc", 0));
+        // Escape sequences after the cut are kept, a wide character that does not fit is dropped
+        assertEquals(GREEN + "サ" + RESET, Colors.truncate(GREEN + "サービス" + RESET, 3));
+        assertEquals(GREEN + "サー" + RESET, Colors.truncate(GREEN + "サービス" + RESET, 4));
+        assertEquals("é", Colors.truncate("éx", 1));
+    }
+}